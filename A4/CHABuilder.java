@@ -43,7 +43,17 @@ class CHABuilder implements CGBuilder<Invoke, JMethod> {
     @Override
     public CallGraph<Invoke, JMethod> build() {
         hierarchy = World.get().getClassHierarchy();
-        return buildCallGraph(World.get().getMainMethod());
+        if (!CallGraphSerializer.isCacheEnabled()) {
+            return buildCallGraph(World.get().getMainMethod());
+        }
+        // reuse the call graph of previous runs if the program is unchanged
+        CallGraphSerializer serializer = new CallGraphSerializer("cha", CHABuilder.class);
+        CallGraph<Invoke, JMethod> callGraph = serializer.load();
+        if (callGraph == null) {
+            callGraph = buildCallGraph(World.get().getMainMethod());
+            serializer.store(callGraph);
+        }
+        return callGraph;
     }
 
     private CallGraph<Invoke, JMethod> buildCallGraph(JMethod entry) {
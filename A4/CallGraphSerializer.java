@@ -0,0 +1,335 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.graph.callgraph;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pascal.taie.World;
+import pascal.taie.config.Options;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.language.classes.ClassHierarchy;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.util.collection.Maps;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores call graphs in a compact binary format and reloads them.
+ * <p>
+ * Methods are written once as a signature table, and every other part
+ * of the graph refers to them by their index in that table. An edge is
+ * encoded as four ints: the index of the container method, the index of
+ * the call site in the IR of the container, the ordinal of its
+ * {@link CallKind} and the index of the callee.
+ * <p>
+ * A cache file is keyed by a hash of the class path (entry names, sizes
+ * and modification times), the main method, the World options that
+ * affect the class hierarchy (Java version, prepending the JVM class path
+ * and phantom references), and the class files of the builder and this
+ * serializer. It is thus discarded as soon as the analyzed program,
+ * the configuration, or the call graph builder changes.
+ * <p>
+ * The cache is disabled unless the option "cache" of the call graph
+ * analysis is set, e.g., {@code -a cg=algorithm:cha;cache:true}.
+ */
+class CallGraphSerializer {
+
+    private static final Logger logger = LogManager.getLogger(CallGraphSerializer.class);
+
+    private static final int MAGIC = 0x54414347; // "TACG"
+
+    private static final int VERSION = 1;
+
+    private static final String CACHE_DIR = "output" + File.separator + "cg-cache";
+
+    private final File cacheFile;
+
+    /**
+     * @param builderId    ID of the call graph builder
+     * @param builderClass class of the builder, whose code is part of
+     *                     the cache key
+     */
+    CallGraphSerializer(String builderId, Class<?> builderClass) {
+        this.cacheFile = new File(CACHE_DIR,
+                builderId + "-" + computeKey(builderClass) + ".bin");
+    }
+
+    /**
+     * @return true if option "cache" of the call graph analysis is set.
+     */
+    static boolean isCacheEnabled() {
+        String options = World.get().getOptions()
+                .getAnalyses().get(CallGraphBuilder.ID);
+        if (options == null) {
+            return false;
+        }
+        for (String option : options.split(";")) {
+            String[] kv = option.split(":", 2);
+            if (kv.length == 2 && kv[0].trim().equals("cache")) {
+                return Boolean.parseBoolean(kv[1].trim());
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Loads the cached call graph of current program.
+     *
+     * @return the loaded call graph, or null if there is no usable cache.
+     */
+    DefaultCallGraph load() {
+        if (!cacheFile.isFile()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(cacheFile)))) {
+            DefaultCallGraph callGraph = read(in);
+            logger.info("Loaded call graph from {}", cacheFile);
+            return callGraph;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to load call graph from {}: {}", cacheFile, e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Stores the given call graph as the cache of current program.
+     */
+    void store(CallGraph<Invoke, JMethod> callGraph) {
+        File dir = cacheFile.getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            logger.warn("Failed to create call graph cache directory {}", dir);
+            return;
+        }
+        File tmp = new File(dir, cacheFile.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            write(callGraph, out);
+        } catch (IOException e) {
+            logger.warn("Failed to store call graph to {}: {}", cacheFile, e.toString());
+            return;
+        }
+        if (!tmp.renameTo(cacheFile)) {
+            logger.warn("Failed to store call graph to {}", cacheFile);
+        }
+    }
+
+    static void write(CallGraph<Invoke, JMethod> callGraph, DataOutputStream out)
+            throws IOException {
+        // number the reachable methods
+        List<JMethod> methods = new ArrayList<>();
+        Map<JMethod, Integer> ids = Maps.newMap();
+        callGraph.reachableMethods().forEach(m -> {
+            ids.put(m, methods.size());
+            methods.add(m);
+        });
+        List<Edge<Invoke, JMethod>> edges = callGraph.edges().toList();
+        int[] containers = new int[edges.size()];
+        int[] callSites = new int[edges.size()];
+        int[] kinds = new int[edges.size()];
+        int[] callees = new int[edges.size()];
+        for (int i = 0; i < edges.size(); ++i) {
+            Edge<Invoke, JMethod> edge = edges.get(i);
+            Invoke callSite = edge.getCallSite();
+            containers[i] = ids.get(callSite.getContainer());
+            callSites[i] = callSite.getIndex();
+            kinds[i] = edge.getKind().ordinal();
+            callees[i] = ids.get(edge.getCallee());
+        }
+        int[] entries = callGraph.entryMethods().mapToInt(ids::get).toArray();
+
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(methods.size());
+        for (JMethod method : methods) {
+            out.writeUTF(method.getSignature());
+        }
+        writeInts(out, entries);
+        out.writeInt(edges.size());
+        writeInts(out, containers);
+        writeInts(out, callSites);
+        writeInts(out, kinds);
+        writeInts(out, callees);
+    }
+
+    static DefaultCallGraph read(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("unknown call graph format");
+        }
+        ClassHierarchy hierarchy = World.get().getClassHierarchy();
+        JMethod[] methods = new JMethod[in.readInt()];
+        for (int i = 0; i < methods.length; ++i) {
+            String signature = in.readUTF();
+            methods[i] = hierarchy.getMethod(signature);
+            if (methods[i] == null) {
+                throw new IOException("cannot find method " + signature);
+            }
+        }
+        int[] entries = readInts(in);
+        int nEdges = in.readInt();
+        int[] containers = readInts(in, nEdges);
+        int[] callSites = readInts(in, nEdges);
+        int[] kinds = readInts(in, nEdges);
+        int[] callees = readInts(in, nEdges);
+
+        DefaultCallGraph callGraph = new DefaultCallGraph();
+        for (int entry : entries) {
+            callGraph.addEntryMethod(methods[entry]);
+        }
+        for (JMethod method : methods) {
+            callGraph.addReachableMethod(method);
+        }
+        CallKind[] callKinds = CallKind.values();
+        for (int i = 0; i < nEdges; ++i) {
+            IR ir = methods[containers[i]].getIR();
+            Stmt stmt = ir.getStmt(callSites[i]);
+            if (!(stmt instanceof Invoke callSite)) {
+                throw new IOException("statement " + stmt + " is not a call site");
+            }
+            callGraph.addEdge(new Edge<>(
+                    callKinds[kinds[i]], callSite, methods[callees[i]]));
+        }
+        return callGraph;
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values)
+            throws IOException {
+        out.writeInt(values.length);
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    private static int[] readInts(DataInputStream in) throws IOException {
+        return readInts(in, in.readInt());
+    }
+
+    private static int[] readInts(DataInputStream in, int expected)
+            throws IOException {
+        int length = in.readInt();
+        if (length != expected) {
+            throw new IOException("corrupted call graph cache");
+        }
+        int[] values = new int[length];
+        for (int i = 0; i < length; ++i) {
+            values[i] = in.readInt();
+        }
+        return values;
+    }
+
+    /**
+     * Appends sizes and modification times of the given class path entry.
+     * Directories are traversed, so that changing any class file inside
+     * changes the key.
+     */
+    private static void appendStamp(File file, StringBuilder sb) {
+        File[] children = file.listFiles();
+        if (children == null) {
+            sb.append(file.length()).append(':').append(file.lastModified()).append(',');
+        } else {
+            Arrays.sort(children);
+            for (File child : children) {
+                appendStamp(child, sb);
+            }
+        }
+    }
+
+    /**
+     * Appends a stamp of the code of given class: the hash of its class
+     * file, or the stamp of its code source if the class file cannot be read.
+     */
+    private static void appendCodeStamp(Class<?> klass, StringBuilder sb) {
+        String name = klass.getName();
+        String resource = name.substring(name.lastIndexOf('.') + 1) + ".class";
+        try (InputStream in = klass.getResourceAsStream(resource)) {
+            if (in != null) {
+                sb.append(name).append('#')
+                        .append(Arrays.hashCode(in.readAllBytes())).append(';');
+                return;
+            }
+        } catch (IOException e) {
+            // fall back to the code source
+        }
+        CodeSource source = klass.getProtectionDomain().getCodeSource();
+        if (source != null) {
+            File file = new File(source.getLocation().getPath());
+            sb.append(name).append('@').append(file.getAbsolutePath()).append('|');
+            appendStamp(file, sb);
+        }
+        sb.append(';');
+    }
+
+    /**
+     * @return hash of the program, the World options and the code of
+     * given builder.
+     */
+    private static String computeKey(Class<?> builderClass) {
+        StringBuilder sb = new StringBuilder();
+        Options options = World.get().getOptions();
+        sb.append("java=").append(options.getJavaVersion())
+                .append(";pp=").append(options.isPrependJVM())
+                .append(";phantom=").append(options.isAllowPhantom())
+                .append(';');
+        appendCodeStamp(builderClass, sb);
+        appendCodeStamp(CallGraphSerializer.class, sb);
+        String classPath = options.getClassPath();
+        if (classPath != null) {
+            for (String path : classPath.split(File.pathSeparator)) {
+                File file = new File(path);
+                sb.append(file.getAbsolutePath()).append('|');
+                appendStamp(file, sb);
+                sb.append(';');
+            }
+        }
+        sb.append(World.get().getMainMethod().getSignature());
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] digest = md.digest(sb.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder key = new StringBuilder();
+            for (int i = 0; i < 8; ++i) {
+                key.append(String.format("%02x", digest[i]));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(sb.toString().hashCode());
+        }
+    }
+}
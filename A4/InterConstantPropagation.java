@@ -22,16 +22,20 @@
 
 package pascal.taie.analysis.dataflow.inter;
 
+import pascal.taie.World;
 import pascal.taie.analysis.dataflow.analysis.constprop.CPFact;
 import pascal.taie.analysis.dataflow.analysis.constprop.ConstantPropagation;
 import pascal.taie.analysis.dataflow.analysis.constprop.Value;
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
 import pascal.taie.analysis.graph.cfg.CFG;
 import pascal.taie.analysis.graph.cfg.CFGBuilder;
 import pascal.taie.analysis.graph.icfg.CallEdge;
 import pascal.taie.analysis.graph.icfg.CallToReturnEdge;
+import pascal.taie.analysis.graph.icfg.ICFGBuilder;
 import pascal.taie.analysis.graph.icfg.NormalEdge;
 import pascal.taie.analysis.graph.icfg.ReturnEdge;
 import pascal.taie.config.AnalysisConfig;
+import pascal.taie.config.ConfigException;
 import pascal.taie.ir.IR;
 import pascal.taie.ir.exp.InvokeExp;
 import pascal.taie.ir.exp.LValue;
@@ -51,6 +55,11 @@ public class InterConstantPropagation extends
 
     public static final String ID = "inter-constprop";
 
+    /**
+     * Default number of summaries kept per method in summary-based mode.
+     */
+    private static final int DEFAULT_SUMMARY_CAP = 64;
+
     private final ConstantPropagation cp;
 
     public InterConstantPropagation(AnalysisConfig config) {
@@ -58,6 +67,64 @@ public class InterConstantPropagation extends
         cp = new ConstantPropagation(new AnalysisConfig(ConstantPropagation.ID));
     }
 
+    /**
+     * Runs the analysis. If option "summary" is set, the summary-based
+     * solver is used instead of propagating facts through the ICFG.
+     * If option "parallel" is set, the SCCs of the call graph are solved
+     * in parallel by "threads" threads. If option "sparse" is set, facts
+     * are propagated only between nodes relevant to int values.
+     * At most one of these options can be set.
+     */
+    @Override
+    public DataflowResult<Stmt, CPFact> analyze() {
+        boolean summary = getBooleanOption("summary");
+        boolean parallel = getBooleanOption("parallel");
+        boolean sparse = getBooleanOption("sparse");
+        if (!summary && !parallel && !sparse) {
+            return super.analyze();
+        }
+        if ((summary ? 1 : 0) + (parallel ? 1 : 0) + (sparse ? 1 : 0) > 1) {
+            throw new ConfigException("Options summary, parallel and sparse of "
+                    + ID + " cannot be combined");
+        }
+        icfg = World.get().getResult(ICFGBuilder.ID);
+        initialize();
+        DataflowResult<Stmt, CPFact> result;
+        if (summary) {
+            int summaryCap = getOptions().has("summary-cap") ?
+                    getOptions().getInt("summary-cap") : DEFAULT_SUMMARY_CAP;
+            result = new SummaryBasedSolver(this, icfg, summaryCap).solve();
+        } else if (parallel) {
+            int nThreads = getOptions().has("threads") ?
+                    getOptions().getInt("threads") :
+                    Runtime.getRuntime().availableProcessors();
+            result = new ParallelInterSolver<>(this, icfg, nThreads).solve();
+        } else {
+            InterSolver<JMethod, Stmt, CPFact> solver = new InterSolver<>(this, icfg);
+            solver.setSparseICFG(new SparseICFG<>(icfg, this::isRelevant));
+            result = solver.solve();
+        }
+        finish();
+        return result;
+    }
+
+    private boolean getBooleanOption(String key) {
+        return getOptions().has(key) && getOptions().getBoolean(key);
+    }
+
+    /**
+     * @return true if the statement may change int facts, i.e., it is
+     * a call or defines an int variable.
+     */
+    private boolean isRelevant(Stmt stmt) {
+        if (stmt instanceof Invoke) {
+            return true;
+        }
+        return stmt.getDef().isPresent()
+                && stmt.getDef().get() instanceof Var var
+                && ConstantPropagation.canHoldInt(var);
+    }
+
     @Override
     public boolean isForward() {
         return cp.isForward();
@@ -28,8 +28,7 @@ import pascal.taie.analysis.graph.icfg.ICFG;
 import pascal.taie.analysis.graph.icfg.ICFGEdge;
 import pascal.taie.util.collection.SetQueue;
 
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.Arrays;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -46,7 +45,31 @@ class InterSolver<Method, Node, Fact> {
 
     private DataflowResult<Node, Fact> result;
 
-    private Queue<Node> workList;
+    private ICFGWorkList<Method, Node> workList;
+
+    /**
+     * Version of OUT fact of each node, which is increased every time
+     * the OUT fact changes.
+     */
+    private int[] versions;
+
+    /**
+     * Number of each edge, as the offset of the in-edges of its target
+     * (indexed by node ID) plus its position among them.
+     */
+    private int[] inEdgeOffsets;
+
+    /**
+     * Version of source OUT fact when each edge (indexed by edge number)
+     * was last transferred, or -1 if it has never been transferred.
+     */
+    private int[] transferredVersions;
+
+    /**
+     * Sparse view of the ICFG, or null if facts are propagated through
+     * all nodes.
+     */
+    private SparseICFG<Method, Node> sparseICFG;
 
     InterSolver(InterDataflowAnalysis<Node, Fact> analysis,
                 ICFG<Method, Node> icfg) {
@@ -54,18 +77,32 @@ class InterSolver<Method, Node, Fact> {
         this.icfg = icfg;
     }
 
+    /**
+     * Lets this solver propagate facts only between the kept nodes of
+     * given sparse view. The facts of bypassed nodes are filled in from
+     * their representatives after solving.
+     */
+    void setSparseICFG(SparseICFG<Method, Node> sparseICFG) {
+        this.sparseICFG = sparseICFG;
+    }
+
     DataflowResult<Node, Fact> solve() {
         result = new DataflowResult<>();
         initialize();
         doSolve();
+        if(sparseICFG != null){
+            fillBypassedNodes();
+        }
         return result;
     }
 
     private void initialize() {
         // TODO - finish me
         for(Node node: icfg){
-            result.setInFact(node, analysis.newInitialFact());
-            result.setOutFact(node, analysis.newInitialFact());
+            if(sparseICFG == null || sparseICFG.isKept(node)){
+                result.setInFact(node, analysis.newInitialFact());
+                result.setOutFact(node, analysis.newInitialFact());
+            }
         }
 
         icfg.entryMethods().forEach(method -> {
@@ -77,20 +114,69 @@ class InterSolver<Method, Node, Fact> {
 
     private void doSolve() {
         // TODO - finish me
-        Queue<Node> workList = new LinkedList<>(icfg.getNodes());
+        workList = new ICFGWorkList<>(icfg);
+        if(sparseICFG == null){
+            workList.addAll();
+        }else{
+            for(Node node: icfg){
+                if(sparseICFG.isKept(node)){
+                    workList.add(node);
+                }
+            }
+        }
+        versions = new int[workList.getNumberOfNodes()];
+        inEdgeOffsets = new int[workList.getNumberOfNodes() + 1];
+        for(Node node: icfg){
+            inEdgeOffsets[workList.getId(node) + 1] = icfg.getInDegreeOf(node);
+        }
+        for(int i = 1; i < inEdgeOffsets.length; ++i){
+            inEdgeOffsets[i] += inEdgeOffsets[i - 1];
+        }
+        transferredVersions = new int[inEdgeOffsets[inEdgeOffsets.length - 1]];
+        Arrays.fill(transferredVersions, -1);
         while(!workList.isEmpty()){
             Node node = workList.poll();
             Fact inFact = result.getInFact(node);
             Fact outFact = result.getOutFact(node);
+            int edgeNumber = inEdgeOffsets[workList.getId(node)];
             for(ICFGEdge<Node> edge: icfg.getInEdgesOf(node)){
-                analysis.meetInto(analysis.transferEdge(edge, result.getOutFact(edge.getSource())), inFact);
+                // in sparse mode, a bypassed source shares the OUT fact
+                // of its representative
+                Node source = sparseICFG == null ?
+                        edge.getSource() : sparseICFG.getRepresentative(edge.getSource());
+                // IN facts only grow by meet, so an edge needs to be
+                // transferred again only when its source OUT has changed
+                int version = versions[workList.getId(source)];
+                if(transferredVersions[edgeNumber] != version){
+                    transferredVersions[edgeNumber] = version;
+                    analysis.meetInto(analysis.transferEdge(edge, result.getOutFact(source)), inFact);
+                }
+                ++edgeNumber;
             }
             if(analysis.transferNode(node, inFact, outFact)){
-                for(Node succNode: icfg.getSuccsOf(node)){
-                    workList.offer(succNode);
+                ++versions[workList.getId(node)];
+                Set<Node> succs = sparseICFG == null ?
+                        icfg.getSuccsOf(node) : sparseICFG.getSuccsOf(node);
+                for(Node succNode: succs){
+                    workList.add(succNode);
                 }
             }
         }
 
     }
+
+    /**
+     * Sets the facts of each bypassed node to the OUT fact of its
+     * representative. The fact objects are shared, thus they must
+     * not be modified by the clients of the result.
+     */
+    private void fillBypassedNodes() {
+        for(Node node: icfg){
+            if(!sparseICFG.isKept(node)){
+                Fact fact = result.getOutFact(sparseICFG.getRepresentative(node));
+                result.setInFact(node, fact);
+                result.setOutFact(node, fact);
+            }
+        }
+    }
 }
@@ -0,0 +1,322 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.inter;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.graph.icfg.ICFG;
+import pascal.taie.analysis.graph.icfg.ICFGEdge;
+import pascal.taie.util.AnalysisException;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.SetQueue;
+import pascal.taie.util.collection.Sets;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Parallel solver for inter-procedural data-flow analysis.
+ * <p>
+ * The solver computes the strongly connected components (SCCs) of the
+ * call graph and assigns each SCC a level, i.e., the length of the
+ * longest call chain from the entry SCCs to it. SCCs are solved level by
+ * level in top-down order, and the SCCs of the same level are solved in
+ * parallel, as there is no call edge among them. Facts cross SCCs only
+ * through the transfers of call and return edges: a changed node marks
+ * its successors in other SCCs as pending, and the sweeps are repeated
+ * until no SCC has pending nodes.
+ * <p>
+ * While a level is being solved, each thread only writes facts of the
+ * nodes of its own SCC, and only reads facts of nodes in SCCs of other
+ * levels, which are not being solved. Since the analysis is monotone,
+ * the result is the same fixed point as the one computed by
+ * {@link InterSolver}. The analysis must not access the solver state
+ * in its transfer functions.
+ */
+class ParallelInterSolver<Method, Node, Fact> {
+
+    private static final Logger logger = LogManager.getLogger(ParallelInterSolver.class);
+
+    private final InterDataflowAnalysis<Node, Fact> analysis;
+
+    private final ICFG<Method, Node> icfg;
+
+    private final int nThreads;
+
+    private DataflowResult<Node, Fact> result;
+
+    private Map<Node, Component> componentOf;
+
+    ParallelInterSolver(InterDataflowAnalysis<Node, Fact> analysis,
+                        ICFG<Method, Node> icfg, int nThreads) {
+        this.analysis = analysis;
+        this.icfg = icfg;
+        this.nThreads = nThreads;
+    }
+
+    DataflowResult<Node, Fact> solve() {
+        result = new DataflowResult<>();
+        initialize();
+        List<List<Component>> levels = buildComponents();
+        ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+        try {
+            doSolve(levels, executor);
+        } finally {
+            executor.shutdown();
+        }
+        return result;
+    }
+
+    private void initialize() {
+        for (Node node : icfg) {
+            result.setInFact(node, analysis.newInitialFact());
+            result.setOutFact(node, analysis.newInitialFact());
+        }
+        icfg.entryMethods().forEach(method -> {
+            Node entry = icfg.getEntryOf(method);
+            result.setOutFact(entry, analysis.newBoundaryFact(entry));
+            result.setInFact(entry, analysis.newBoundaryFact(entry));
+        });
+    }
+
+    private void doSolve(List<List<Component>> levels, ExecutorService executor) {
+        int nRounds = 0;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            ++nRounds;
+            for (List<Component> level : levels) {
+                List<Callable<Void>> tasks = new ArrayList<>();
+                for (Component component : level) {
+                    if (!component.pending.isEmpty()) {
+                        tasks.add(() -> {
+                            solveComponent(component);
+                            return null;
+                        });
+                    }
+                }
+                if (!tasks.isEmpty()) {
+                    changed = true;
+                    runAll(executor, tasks);
+                }
+            }
+        }
+        logger.info("Solved {} call-graph levels in {} rounds with {} threads",
+                levels.size(), nRounds, nThreads);
+    }
+
+    private static void runAll(ExecutorService executor, List<Callable<Void>> tasks) {
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AnalysisException("Interrupted while solving", e);
+        } catch (ExecutionException e) {
+            throw new AnalysisException("Failed to solve SCC", e.getCause());
+        }
+    }
+
+    /**
+     * Solves the pending nodes of an SCC to its local fixed point.
+     */
+    private void solveComponent(Component component) {
+        Queue<Node> workList = new SetQueue<>();
+        for (Iterator<Node> it = component.pending.iterator(); it.hasNext(); ) {
+            workList.add(it.next());
+            it.remove();
+        }
+        while (!workList.isEmpty()) {
+            Node node = workList.poll();
+            Fact inFact = result.getInFact(node);
+            Fact outFact = result.getOutFact(node);
+            for (ICFGEdge<Node> edge : icfg.getInEdgesOf(node)) {
+                analysis.meetInto(analysis.transferEdge(edge,
+                        result.getOutFact(edge.getSource())), inFact);
+            }
+            if (analysis.transferNode(node, inFact, outFact)) {
+                for (Node succ : icfg.getSuccsOf(node)) {
+                    Component target = componentOf.get(succ);
+                    if (target == component) {
+                        workList.add(succ);
+                    } else {
+                        target.pending.add(succ);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes SCCs of the call graph and groups them by levels.
+     */
+    private List<List<Component>> buildComponents() {
+        Map<Method, List<Node>> nodesOf = Maps.newMap();
+        for (Node node : icfg) {
+            nodesOf.computeIfAbsent(icfg.getContainingMethodOf(node),
+                    m -> new ArrayList<>()).add(node);
+        }
+        Map<Method, List<Method>> calleesOf = Maps.newMap();
+        nodesOf.forEach((method, nodes) -> {
+            Set<Method> callees = Sets.newSet();
+            for (Node node : nodes) {
+                if (icfg.isCallSite(node)) {
+                    callees.addAll(icfg.getCalleesOf(node));
+                }
+            }
+            calleesOf.put(method, new ArrayList<>(callees));
+        });
+        // Tarjan's algorithm outputs SCCs in reverse topological order
+        List<List<Method>> sccs = computeSCCs(nodesOf.keySet(), calleesOf);
+        Collections.reverse(sccs);
+
+        componentOf = Maps.newMap(icfg.getNodes().size());
+        Map<Method, Component> componentOfMethod = Maps.newMap();
+        List<Component> components = new ArrayList<>(sccs.size());
+        for (List<Method> scc : sccs) {
+            Component component = new Component();
+            for (Method method : scc) {
+                componentOfMethod.put(method, component);
+                for (Node node : nodesOf.get(method)) {
+                    componentOf.put(node, component);
+                    component.pending.add(node);
+                }
+            }
+            components.add(component);
+        }
+        // compute levels in topological order
+        int maxLevel = 0;
+        for (int i = 0; i < sccs.size(); ++i) {
+            Component component = components.get(i);
+            for (Method method : sccs.get(i)) {
+                for (Method callee : calleesOf.get(method)) {
+                    Component target = componentOfMethod.get(callee);
+                    if (target != null && target != component) {
+                        target.level = Math.max(target.level, component.level + 1);
+                    }
+                }
+            }
+            maxLevel = Math.max(maxLevel, component.level);
+        }
+        List<List<Component>> levels = new ArrayList<>(maxLevel + 1);
+        for (int i = 0; i <= maxLevel; ++i) {
+            levels.add(new ArrayList<>());
+        }
+        components.forEach(c -> levels.get(c.level).add(c));
+        return levels;
+    }
+
+    private static <M> List<List<M>> computeSCCs(
+            Set<M> methods, Map<M, List<M>> calleesOf) {
+        List<List<M>> sccs = new ArrayList<>();
+        Map<M, Integer> indexes = Maps.newMap();
+        Map<M, Integer> lowLinks = Maps.newMap();
+        Set<M> onStack = Sets.newSet();
+        Deque<M> stack = new ArrayDeque<>();
+        Deque<M> callStack = new ArrayDeque<>();
+        Deque<Iterator<M>> iters = new ArrayDeque<>();
+        for (M root : methods) {
+            if (indexes.containsKey(root)) {
+                continue;
+            }
+            visit(root, indexes, lowLinks, onStack, stack, callStack, iters, calleesOf);
+            while (!callStack.isEmpty()) {
+                M method = callStack.peek();
+                Iterator<M> it = iters.peek();
+                if (it.hasNext()) {
+                    M callee = it.next();
+                    if (!calleesOf.containsKey(callee)) {
+                        continue;
+                    }
+                    if (!indexes.containsKey(callee)) {
+                        visit(callee, indexes, lowLinks, onStack, stack,
+                                callStack, iters, calleesOf);
+                    } else if (onStack.contains(callee)) {
+                        lowLinks.put(method, Math.min(lowLinks.get(method),
+                                indexes.get(callee)));
+                    }
+                } else {
+                    callStack.pop();
+                    iters.pop();
+                    if (!callStack.isEmpty()) {
+                        M caller = callStack.peek();
+                        lowLinks.put(caller, Math.min(lowLinks.get(caller),
+                                lowLinks.get(method)));
+                    }
+                    if (lowLinks.get(method).equals(indexes.get(method))) {
+                        List<M> scc = new ArrayList<>();
+                        M m;
+                        do {
+                            m = stack.pop();
+                            onStack.remove(m);
+                            scc.add(m);
+                        } while (m != method);
+                        sccs.add(scc);
+                    }
+                }
+            }
+        }
+        return sccs;
+    }
+
+    private static <M> void visit(M method, Map<M, Integer> indexes,
+                                  Map<M, Integer> lowLinks, Set<M> onStack,
+                                  Deque<M> stack, Deque<M> callStack,
+                                  Deque<Iterator<M>> iters, Map<M, List<M>> calleesOf) {
+        int index = indexes.size();
+        indexes.put(method, index);
+        lowLinks.put(method, index);
+        stack.push(method);
+        onStack.add(method);
+        callStack.push(method);
+        iters.push(calleesOf.get(method).iterator());
+    }
+
+    /**
+     * An SCC of the call graph, together with the nodes of its methods.
+     */
+    private class Component {
+
+        private int level;
+
+        /**
+         * Nodes to be solved, which may be added by other threads.
+         */
+        private final Set<Node> pending = ConcurrentHashMap.newKeySet();
+    }
+}
@@ -0,0 +1,453 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+package pascal.taie.analysis.dataflow.inter;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pascal.taie.analysis.dataflow.analysis.constprop.CPFact;
+import pascal.taie.analysis.dataflow.analysis.constprop.ConstantPropagation;
+import pascal.taie.analysis.dataflow.analysis.constprop.Value;
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.graph.icfg.CallEdge;
+import pascal.taie.analysis.graph.icfg.ICFG;
+import pascal.taie.analysis.graph.icfg.ICFGEdge;
+import pascal.taie.analysis.graph.icfg.ReturnEdge;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.MultiMap;
+import pascal.taie.util.collection.SetQueue;
+import pascal.taie.util.collection.Sets;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * Summary-based (functional approach) solver for inter-procedural
+ * constant propagation.
+ * <p>
+ * Instead of propagating facts through callee bodies on the ICFG, this
+ * solver analyzes each method once per abstract argument vector, i.e.,
+ * the {@link Value}s of its parameters, and memoizes the resulting
+ * summary (the values of its return variables). A call site looks up the
+ * summary of the callee for its argument vector, so a method that is
+ * called from many sites with the same constant arguments is analyzed
+ * only once.
+ * <p>
+ * A caller whose callee summary is missing is suspended on an explicit
+ * stack until the callee has been analyzed, so deep call chains do not
+ * overflow the Java stack.
+ * <p>
+ * At most {@code summaryCap} summaries are kept per method, and the least
+ * recently used ones are evicted. An evicted summary is simply recomputed
+ * when it is requested again. The facts of each analyzed method body are
+ * met into the node facts of the result, so the result can be queried as
+ * the one of {@link InterSolver}.
+ */
+class SummaryBasedSolver {
+
+    private static final Logger logger = LogManager.getLogger(SummaryBasedSolver.class);
+
+    /**
+     * Maximum number of distinct argument vectors of a method that are
+     * in use by call sites. Beyond this, new vectors are widened to the
+     * all-NAC vector, which guarantees termination, e.g., for recursive
+     * methods with decreasing arguments. A vector that a call site has
+     * replaced by a later one during iteration, e.g., the all-UNDEF vector,
+     * no longer counts.
+     */
+    private static final int MAX_VECTORS_PER_METHOD = 256;
+
+    private final InterConstantPropagation analysis;
+
+    private final ICFG<JMethod, Stmt> icfg;
+
+    private final int summaryCap;
+
+    /**
+     * Memoized summaries of each method, in LRU order.
+     */
+    private final Map<JMethod, Map<List<Value>, Summary>> summaries = Maps.newMap();
+
+    /**
+     * Argument vectors of each method, mapped to the number of call sites
+     * currently using them.
+     */
+    private final Map<JMethod, Map<List<Value>, Integer>> vectors = Maps.newMap();
+
+    /**
+     * The argument vector currently passed by each call site.
+     */
+    private final Map<CallSite, List<Value>> siteVectors = Maps.newMap();
+
+    /**
+     * Summaries being computed, which are never evicted.
+     */
+    private final Map<Context, Summary> inProgress = Maps.newMap();
+
+    /**
+     * Map from each analyzed context to the contexts that used its summary.
+     */
+    private final MultiMap<Context, Context> callers = Maps.newMultiMap();
+
+    private final Map<JMethod, List<Stmt>> methodNodes = Maps.newMap();
+
+    private final Queue<Context> workList = new SetQueue<>();
+
+    private DataflowResult<Stmt, CPFact> result;
+
+    private int nAnalyzed;
+
+    SummaryBasedSolver(InterConstantPropagation analysis,
+                       ICFG<JMethod, Stmt> icfg, int summaryCap) {
+        this.analysis = analysis;
+        this.icfg = icfg;
+        this.summaryCap = summaryCap;
+    }
+
+    DataflowResult<Stmt, CPFact> solve() {
+        result = new DataflowResult<>();
+        for (Stmt node : icfg) {
+            result.setInFact(node, analysis.newInitialFact());
+            result.setOutFact(node, analysis.newInitialFact());
+        }
+        icfg.entryMethods().forEach(method -> {
+            CPFact boundary = analysis.newBoundaryFact(icfg.getEntryOf(method));
+            Context context = makeContext(new CallSite(null, null, method), boundary);
+            Map<List<Value>, Summary> cache = getSummaries(method);
+            if (cache.get(context.args()) == null) {
+                Summary summary = new Summary();
+                cache.put(context.args(), summary);
+                analyze(context, summary, false);
+            }
+        });
+        // re-analyze contexts whose callee summaries have changed
+        while (!workList.isEmpty()) {
+            Context context = workList.poll();
+            Map<List<Value>, Summary> cache = getSummaries(context.method());
+            Summary summary = cache.get(context.args());
+            if (summary == null) {
+                summary = new Summary();
+                cache.put(context.args(), summary);
+            }
+            analyze(context, summary, true);
+        }
+        logger.info("Analyzed {} method bodies for {} argument vectors",
+                nAnalyzed, vectors.values().stream().mapToInt(Map::size).sum());
+        return result;
+    }
+
+    private Map<List<Value>, Summary> getSummaries(JMethod method) {
+        return summaries.computeIfAbsent(method, m -> new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Value>, Summary> eldest) {
+                return size() > summaryCap;
+            }
+        });
+    }
+
+    /**
+     * Analyzes the method body of given context and updates its summary,
+     * together with the bodies of all callee contexts that have no summary.
+     *
+     * @param notify whether to re-analyze the callers if the summary changes.
+     *               A fresh summary requested by a caller is handed to it
+     *               directly, thus the caller needs no notification unless
+     *               it has seen a partial result during recursion.
+     */
+    private void analyze(Context context, Summary summary, boolean notify) {
+        Deque<Frame> stack = new ArrayDeque<>();
+        stack.push(enter(context, summary, notify));
+        while (!stack.isEmpty()) {
+            Frame callee = resume(stack.peek());
+            if (callee != null) {
+                stack.push(callee);
+            } else {
+                exit(stack.pop());
+            }
+        }
+    }
+
+    /**
+     * Starts analyzing the method body of given context.
+     */
+    private Frame enter(Context context, Summary summary, boolean notify) {
+        ++nAnalyzed;
+        inProgress.put(context, summary);
+        Frame frame = new Frame(context, summary, notify);
+        JMethod method = context.method();
+        List<Stmt> nodes = getNodes(method);
+        for (Stmt node : nodes) {
+            frame.inFacts.put(node, analysis.newInitialFact());
+            frame.outFacts.put(node, analysis.newInitialFact());
+        }
+        CPFact entryFact = frame.inFacts.get(icfg.getEntryOf(method));
+        List<Var> params = method.getIR().getParams();
+        for (int i = 0; i < params.size(); ++i) {
+            entryFact.update(params.get(i), context.args().get(i));
+        }
+        frame.workList.addAll(nodes);
+        return frame;
+    }
+
+    /**
+     * Solves the method body of given frame on its intra-procedural
+     * part of the ICFG, with callees replaced by their summaries.
+     *
+     * @return the frame of a callee context whose summary must be computed
+     * before the given frame can continue, or null if the given frame
+     * has reached its fixed point.
+     */
+    private Frame resume(Frame frame) {
+        while (frame.blocked != null || !frame.workList.isEmpty()) {
+            Stmt node = frame.blocked != null ?
+                    frame.blocked : frame.workList.poll();
+            CPFact in = frame.inFacts.get(node);
+            for (ICFGEdge<Stmt> edge : icfg.getInEdgesOf(node)) {
+                if (edge instanceof ReturnEdge<Stmt> returnEdge) {
+                    Context callee = getCalleeContext(frame.context, returnEdge,
+                            frame.outFacts.get(returnEdge.getCallSite()));
+                    if (callee == null) {
+                        continue;
+                    }
+                    Summary summary = frame.resolved.get(callee);
+                    if (summary == null) {
+                        summary = getSummary(frame.context, callee);
+                    }
+                    if (summary == null) {
+                        // suspend this node until the callee is analyzed
+                        summary = new Summary();
+                        getSummaries(callee.method()).put(callee.args(), summary);
+                        frame.blocked = node;
+                        frame.resolved.put(callee, summary);
+                        return enter(callee, summary, false);
+                    }
+                    if (summary.exit != null) {
+                        analysis.meetInto(analysis.transferEdge(edge, summary.exit), in);
+                    }
+                } else if (!(edge instanceof CallEdge)) {
+                    CPFact out = frame.outFacts.get(edge.getSource());
+                    if (out != null) {
+                        analysis.meetInto(analysis.transferEdge(edge, out), in);
+                    }
+                }
+            }
+            frame.blocked = null;
+            frame.resolved.clear();
+            if (analysis.transferNode(node, in, frame.outFacts.get(node))) {
+                frame.workList.addAll(getIntraSuccsOf(node));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finishes the method body of given frame and updates its summary.
+     */
+    private void exit(Frame frame) {
+        Context context = frame.context;
+        JMethod method = context.method();
+        inProgress.remove(context);
+        // merge facts of this context into the (context-insensitive) result
+        for (Stmt node : getNodes(method)) {
+            analysis.meetInto(frame.inFacts.get(node), result.getInFact(node));
+            analysis.meetInto(frame.outFacts.get(node), result.getOutFact(node));
+        }
+        CPFact exitOut = frame.outFacts.get(icfg.getExitOf(method));
+        CPFact exit = new CPFact();
+        if (exitOut != null) {
+            for (Var ret : method.getIR().getReturnVars()) {
+                exit.update(ret, exitOut.get(ret));
+            }
+        }
+        Summary summary = frame.summary;
+        boolean changed = !exit.equals(summary.exit);
+        boolean needNotify = frame.notify || summary.exit != null || summary.observed;
+        summary.exit = exit;
+        summary.observed = false;
+        if (changed && needNotify) {
+            callers.get(context).forEach(workList::add);
+        }
+    }
+
+    /**
+     * @return the summary of callee context, or null if it has to be
+     * computed. A summary being computed is returned with its partial
+     * result, which may be null.
+     */
+    private Summary getSummary(Context caller, Context callee) {
+        callers.put(callee, caller);
+        Summary summary = inProgress.get(callee);
+        if (summary != null) {
+            // recursive call, use the partial result
+            summary.observed = true;
+            return summary;
+        }
+        return getSummaries(callee.method()).get(callee.args());
+    }
+
+    private Context getCalleeContext(Context caller, ReturnEdge<Stmt> returnEdge,
+                                     CPFact callSiteOut) {
+        if (callSiteOut == null) {
+            return null;
+        }
+        Stmt callSite = returnEdge.getCallSite();
+        JMethod callee = icfg.getContainingMethodOf(returnEdge.getSource());
+        for (ICFGEdge<Stmt> edge : icfg.getOutEdgesOf(callSite)) {
+            if (edge instanceof CallEdge<Stmt> callEdge
+                    && callEdge.getCallee().equals(callee)) {
+                CPFact params = analysis.transferEdge(callEdge, callSiteOut);
+                return makeContext(new CallSite(caller, callSite, callee), params);
+            }
+        }
+        return null;
+    }
+
+    private Context makeContext(CallSite site, CPFact params) {
+        JMethod method = site.callee();
+        List<Value> args = new ArrayList<>();
+        for (Var param : method.getIR().getParams()) {
+            args.add(params.get(param));
+        }
+        List<Value> old = siteVectors.get(site);
+        if (args.equals(old)) {
+            return new Context(method, old);
+        }
+        Map<List<Value>, Integer> inUse = vectors.computeIfAbsent(method, m -> Maps.newMap());
+        if (old != null) {
+            // the call site no longer passes the old vector
+            inUse.computeIfPresent(old, (v, n) -> n > 1 ? n - 1 : null);
+        }
+        if (!inUse.containsKey(args) && inUse.size() >= MAX_VECTORS_PER_METHOD) {
+            args = new ArrayList<>();
+            for (Var param : method.getIR().getParams()) {
+                args.add(ConstantPropagation.canHoldInt(param) ?
+                        Value.getNAC() : Value.getUndef());
+            }
+        }
+        args = List.copyOf(args);
+        inUse.merge(args, 1, Integer::sum);
+        siteVectors.put(site, args);
+        return new Context(method, args);
+    }
+
+    /**
+     * @return nodes of given method that are reachable from its entry.
+     */
+    private List<Stmt> getNodes(JMethod method) {
+        return methodNodes.computeIfAbsent(method, m -> {
+            List<Stmt> nodes = new ArrayList<>();
+            Set<Stmt> visited = Sets.newSet();
+            List<Stmt> stack = new ArrayList<>();
+            stack.add(icfg.getEntryOf(m));
+            while (!stack.isEmpty()) {
+                Stmt node = stack.remove(stack.size() - 1);
+                if (visited.add(node)) {
+                    nodes.add(node);
+                    stack.addAll(getIntraSuccsOf(node));
+                }
+            }
+            return nodes;
+        });
+    }
+
+    private List<Stmt> getIntraSuccsOf(Stmt node) {
+        List<Stmt> succs = new ArrayList<>();
+        for (ICFGEdge<Stmt> edge : icfg.getOutEdgesOf(node)) {
+            if (!(edge instanceof CallEdge) && !(edge instanceof ReturnEdge)) {
+                succs.add(edge.getTarget());
+            }
+        }
+        return succs;
+    }
+
+    /**
+     * A method together with the abstract values of its parameters.
+     */
+    private record Context(JMethod method, List<Value> args) {
+    }
+
+    /**
+     * A call site of {@code callee} in {@code caller}. Entry methods are
+     * called from the site with null caller and statement.
+     */
+    private record CallSite(Context caller, Stmt callSite, JMethod callee) {
+    }
+
+    private static class Summary {
+
+        /**
+         * Fact of return variables at method exit, or null if the summary
+         * has not been computed.
+         */
+        private CPFact exit;
+
+        /**
+         * Whether a recursive call has used this summary while it was
+         * being computed.
+         */
+        private boolean observed;
+    }
+
+    /**
+     * State of a method body being analyzed.
+     */
+    private static class Frame {
+
+        private final Context context;
+
+        private final Summary summary;
+
+        private final boolean notify;
+
+        private final Map<Stmt, CPFact> inFacts = Maps.newMap();
+
+        private final Map<Stmt, CPFact> outFacts = Maps.newMap();
+
+        private final Queue<Stmt> workList = new SetQueue<>();
+
+        /**
+         * Node suspended on a callee summary, which is processed first
+         * when this frame is resumed.
+         */
+        private Stmt blocked;
+
+        /**
+         * Summaries computed for the suspended node. They are used even if
+         * evicted from the cache meanwhile.
+         */
+        private final Map<Context, Summary> resolved = Maps.newMap();
+
+        private Frame(Context context, Summary summary, boolean notify) {
+            this.context = context;
+            this.summary = summary;
+            this.notify = notify;
+        }
+    }
+}
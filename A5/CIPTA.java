@@ -0,0 +1,55 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.ci;
+
+import pascal.taie.analysis.ProgramAnalysis;
+import pascal.taie.analysis.pta.core.heap.AllocationSiteBasedModel;
+import pascal.taie.analysis.pta.core.heap.HeapModel;
+import pascal.taie.config.AnalysisConfig;
+import pascal.taie.config.AnalysisOptions;
+
+/**
+ * Context-insensitive pointer analysis.
+ * <p>
+ * The options of this analysis configure its {@link Solver}: "wave"
+ * solves by wave propagation instead of the work list, "type-filter"
+ * filters propagated objects by the declared types of pointers, and
+ * "telemetry" (with "telemetry-file") reports solver statistics.
+ */
+public class CIPTA extends ProgramAnalysis<CIPTAResult> {
+
+    public static final String ID = "cipta";
+
+    public CIPTA(AnalysisConfig config) {
+        super(config);
+    }
+
+    @Override
+    public CIPTAResult analyze() {
+        AnalysisOptions options = getOptions();
+        HeapModel heapModel = new AllocationSiteBasedModel(options);
+        Solver solver = new Solver(heapModel, options);
+        solver.solve();
+        return solver.getResult();
+    }
+}
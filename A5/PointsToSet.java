@@ -0,0 +1,180 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.ci;
+
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.analysis.pta.pts.HybridIdSet;
+import pascal.taie.analysis.pta.pts.Indexer;
+
+import java.util.Iterator;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.StringJoiner;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Points-to set, which adapts its representation to its size: small sets
+ * are sorted arrays of object IDs, and large sets are compressed bitmaps
+ * over the IDs. The IDs are dense numbers assigned to objects by the
+ * indexer of one solver run.
+ * <p>
+ * The solver creates its sets with its indexer. A set created by the
+ * no-argument constructor, e.g., the set of a pointer, is unbound
+ * and empty, and is bound to the indexer of the first non-empty set
+ * added to it by {@link #addAllDiff}.
+ */
+public class PointsToSet implements Iterable<Obj> {
+
+    /**
+     * The indexer of the IDs in {@link #ids}, or null if the set is unbound.
+     */
+    private Indexer<Obj> indexer;
+
+    private final HybridIdSet ids;
+
+    /**
+     * Constructs an empty unbound points-to set.
+     */
+    public PointsToSet() {
+        this(null, new HybridIdSet());
+    }
+
+    /**
+     * Constructs an empty points-to set whose objects are numbered
+     * by given indexer.
+     */
+    PointsToSet(Indexer<Obj> indexer) {
+        this(indexer, new HybridIdSet());
+    }
+
+    /**
+     * Constructs a points-to set containing one object, which is numbered
+     * by given indexer.
+     */
+    PointsToSet(Indexer<Obj> indexer, Obj obj) {
+        this(indexer);
+        addObject(obj);
+    }
+
+    private PointsToSet(Indexer<Obj> indexer, HybridIdSet ids) {
+        this.indexer = indexer;
+        this.ids = ids;
+    }
+
+    /**
+     * Adds an object to this set.
+     *
+     * @return true if this points-to set changed as a result of the call,
+     * otherwise false.
+     */
+    public boolean addObject(Obj obj) {
+        if (indexer == null) {
+            throw new IllegalStateException(
+                    "Cannot add " + obj + " to an unbound points-to set");
+        }
+        return ids.add(getId(obj));
+    }
+
+    /**
+     * Adds all objects in given points-to set to this set.
+     *
+     * @return the objects that are newly added to this set.
+     */
+    public PointsToSet addAllDiff(PointsToSet pts) {
+        if (indexer == null) {
+            if (pts.isEmpty()) {
+                return new PointsToSet();
+            }
+            indexer = pts.indexer;
+        }
+        if (pts.indexer == indexer) {
+            return new PointsToSet(indexer, ids.addAllDiff(pts.ids));
+        }
+        PointsToSet diff = new PointsToSet(indexer, new HybridIdSet());
+        for (Obj obj : pts) {
+            if (addObject(obj)) {
+                diff.addObject(obj);
+            }
+        }
+        return diff;
+    }
+
+    public boolean contains(Obj obj) {
+        return indexer != null && ids.contains(getId(obj));
+    }
+
+    /**
+     * @return true if this points-to set is empty.
+     */
+    public boolean isEmpty() {
+        return ids.isEmpty();
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+    /**
+     * @return an iterator over the objects in this set.
+     */
+    @Override
+    public Iterator<Obj> iterator() {
+        PrimitiveIterator.OfInt it = ids.iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public Obj next() {
+                return getObj(it.nextInt());
+            }
+        };
+    }
+
+    /**
+     * @return a stream of the objects in this set.
+     */
+    public Stream<Obj> objects() {
+        return StreamSupport.stream(Spliterators.spliterator(
+                iterator(), size(), Spliterator.DISTINCT), false);
+    }
+
+    @Override
+    public String toString() {
+        StringJoiner joiner = new StringJoiner(", ", "[", "]");
+        forEach(obj -> joiner.add(obj.toString()));
+        return joiner.toString();
+    }
+
+    private int getId(Obj obj) {
+        return indexer.getIndex(obj);
+    }
+
+    private Obj getObj(int id) {
+        return indexer.getObject(id);
+    }
+}
@@ -31,6 +31,12 @@ import pascal.taie.analysis.graph.callgraph.DefaultCallGraph;
 import pascal.taie.analysis.graph.callgraph.Edge;
 import pascal.taie.analysis.pta.core.heap.HeapModel;
 import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.analysis.pta.core.solver.CycleEliminator;
+import pascal.taie.analysis.pta.core.solver.SubtypeOracle;
+import pascal.taie.analysis.pta.core.solver.Telemetry;
+import pascal.taie.analysis.pta.pts.Indexer;
+import pascal.taie.analysis.pta.pts.MapBasedIndexer;
+import pascal.taie.config.AnalysisOptions;
 import pascal.taie.ir.exp.InvokeExp;
 import pascal.taie.ir.exp.RValue;
 import pascal.taie.ir.exp.Var;
@@ -46,10 +52,15 @@ import pascal.taie.ir.stmt.StoreField;
 import pascal.taie.language.classes.ClassHierarchy;
 import pascal.taie.language.classes.JMethod;
 import pascal.taie.util.AnalysisException;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.language.type.ArrayType;
+import pascal.taie.language.type.PrimitiveType;
 import pascal.taie.language.type.Type;
 import pascal.taie.language.classes.JField;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 class Solver {
 
@@ -57,18 +68,58 @@ class Solver {
 
     private final HeapModel heapModel;
 
+    /**
+     * Whether to solve by wave propagation instead of the work list.
+     */
+    private final boolean wave;
+
+    /**
+     * Whether to filter propagated objects by the declared types of
+     * pointers, and to skip the PFG edges of primitive pointers.
+     */
+    private final boolean typeFilter;
+
+    private SubtypeOracle subtypes;
+
+    /**
+     * Number of objects rejected by type filtering.
+     */
+    private long nFiltered;
+
+    /**
+     * Telemetry of this run, or null if it is disabled.
+     */
+    private final Telemetry telemetry;
+
     private DefaultCallGraph callGraph;
 
     private PointerFlowGraph pointerFlowGraph;
 
+    /**
+     * Numbering of the objects in the points-to sets of this run.
+     */
+    private Indexer<Obj> objIndexer;
+
     private WorkList workList;
 
+    private CycleEliminator<Pointer> cycles;
+
     private StmtProcessor stmtProcessor;
 
     private ClassHierarchy hierarchy;
 
-    Solver(HeapModel heapModel) {
+    /**
+     * Creates a solver configured by options. If option "wave" is set,
+     * the solver uses wave propagation. If option "type-filter" is set,
+     * the solver filters objects by the declared types of pointers.
+     * If option "telemetry" is set, the solver reports its statistics.
+     */
+    Solver(HeapModel heapModel, AnalysisOptions options) {
         this.heapModel = heapModel;
+        this.wave = options.has("wave") && options.getBoolean("wave");
+        this.typeFilter = options.has("type-filter")
+                && options.getBoolean("type-filter");
+        this.telemetry = Telemetry.of(options);
     }
 
     /**
@@ -76,18 +127,41 @@ class Solver {
      */
     void solve() {
         initialize();
-        analyze();
+        if (wave) {
+            analyzeWaves();
+        } else {
+            analyze();
+        }
+        // merged pointers share the points-to sets of their representatives
+        cycles.forEachMerged((pointer, rep) ->
+                pointer.getPointsToSet().addAllDiff(rep.getPointsToSet()));
+        logger.info("Cycle elimination merged {} pointers", cycles.getNumberOfMerged());
+        if (typeFilter) {
+            logger.info("Type filtering rejected {} objects", nFiltered);
+        }
+        logger.info("Work list entries: {} added, {} propagated after coalescing",
+                workList.getNumberOfAddedEntries(),
+                workList.getNumberOfPolledEntries());
+        if (telemetry != null) {
+            callGraph.reachableMethods().forEach(telemetry::onReachableMethod);
+            callGraph.edges().forEach(edge -> telemetry.onCallEdge(edge.getCallSite()));
+            telemetry.writeReport(p -> ((Pointer) p).getPointsToSet().size());
+        }
     }
 
     /**
      * Initializes pointer analysis.
      */
     private void initialize() {
+        // number the objects of this run only
+        objIndexer = new MapBasedIndexer<>();
         workList = new WorkList();
         pointerFlowGraph = new PointerFlowGraph();
+        cycles = new CycleEliminator<>();
         callGraph = new DefaultCallGraph();
         stmtProcessor = new StmtProcessor();
         hierarchy = World.get().getClassHierarchy();
+        subtypes = typeFilter ? new SubtypeOracle() : null;
         // initialize main method
         JMethod main = World.get().getMainMethod();
         callGraph.addEntryMethod(main);
@@ -142,7 +216,7 @@ class Solver {
         @Override
         public Void visit(New stmt){
             VarPtr ptr = pointerFlowGraph.getVarPtr(stmt.getLValue());
-            workList.addEntry(ptr, new PointsToSet(heapModel.getObj(stmt)));
+            workList.addEntry(ptr, new PointsToSet(objIndexer, heapModel.getObj(stmt)));
             return null;
         }
 
@@ -188,11 +262,17 @@ class Solver {
      */
     private void addPFGEdge(Pointer source, Pointer target) {
         // TODO - finish me
+        if(typeFilter && getDeclaredType(target) instanceof PrimitiveType){
+            // primitive pointers never hold objects
+            return;
+        }
         if(pointerFlowGraph.addEdge(source, target)){
             // PFG changed
-            if(!source.getPointsToSet().isEmpty()){
+            cycles.addEdge(source, target);
+            PointsToSet sourcePts = cycles.find(source).getPointsToSet();
+            if(!sourcePts.isEmpty()){
                 // ptr(source) not empty
-                workList.addEntry(target, source.getPointsToSet());
+                workList.addEntry(target, sourcePts);
             }
         }
     }
@@ -204,38 +284,195 @@ class Solver {
         // TODO - finish me
         while(!workList.isEmpty()){
             WorkList.Entry entry = workList.pollEntry();
-            Pointer ptr = entry.pointer();
+            // merged pointers are propagated via their representatives
+            Pointer ptr = cycles.find(entry.pointer());
             PointsToSet p2s = entry.pointsToSet();
             PointsToSet delta = propagate(ptr, p2s);
 
-            if(ptr instanceof VarPtr varPtr){
-                Var var = varPtr.getVar();
-                List<StoreField> storeFields = var.getStoreFields();
-                List<LoadField> loadFields = var.getLoadFields();
-                List<StoreArray> storeArrays = var.getStoreArrays();
-                List<LoadArray> loadArrays = var.getLoadArrays();
-
-                for(Obj o: delta){
-                    storeFields.forEach(stmt -> {
-                        // x.f = y
-                        JField field = stmt.getFieldRef().resolve();
-                        addPFGEdge(pointerFlowGraph.getVarPtr(stmt.getRValue()), pointerFlowGraph.getInstanceField(o, field));
-                    });
-                    loadFields.forEach(stmt -> {
-                        // y = x.f
-                        JField field = stmt.getFieldRef().resolve();
-                        addPFGEdge(pointerFlowGraph.getInstanceField(o, field), pointerFlowGraph.getVarPtr(stmt.getLValue()));
-                    });
-                    storeArrays.forEach(stmt -> {
-                        // x[*] = y
-                        addPFGEdge(pointerFlowGraph.getVarPtr(stmt.getRValue()), pointerFlowGraph.getArrayIndex(o));
-                    });
-                    loadArrays.forEach(stmt -> {
-                        // y = x[*]
-                        addPFGEdge(pointerFlowGraph.getArrayIndex(o), pointerFlowGraph.getVarPtr(stmt.getLValue()));
-                    });
-                    processCall(var, o);
+            if(!delta.isEmpty()){
+                for(Pointer member: cycles.getMembersOf(ptr)){
+                    if(member instanceof VarPtr varPtr){
+                        processVar(varPtr.getVar(), delta);
+                    }
                 }
+                collapseCycle(ptr);
+            }
+        }
+    }
+
+    /**
+     * Solves by wave propagation, which repeats the following phases
+     * until the work list is empty:
+     * <ol>
+     *     <li>collapses the SCCs of the PFG;</li>
+     *     <li>propagates the pending points-to sets along the PFG in
+     *     topological order, so each node is propagated once;</li>
+     *     <li>adds the new PFG edges and entries from the field/array
+     *     accesses and calls on the variables whose points-to sets
+     *     changed in this wave.</li>
+     * </ol>
+     */
+    private void analyzeWaves() {
+        int nWaves = 0;
+        while(!workList.isEmpty()){
+            ++nWaves;
+            // phase 1: collapse SCCs, and order nodes topologically
+            List<List<Pointer>> sccs = cycles.computeSCCs();
+            List<Pointer> order = new ArrayList<>(sccs.size());
+            for(int i = sccs.size() - 1; i >= 0; --i){
+                List<Pointer> scc = sccs.get(i);
+                if(scc.size() > 1){
+                    collapse(scc);
+                }
+                order.add(cycles.find(scc.get(0)));
+            }
+            // phase 2: propagate in topological order
+            Map<Pointer, PointsToSet> deltas = Maps.newMap();
+            for(Pointer node: order){
+                PointsToSet pending = workList.remove(node);
+                if(pending != null){
+                    propagateWave(node, pending, deltas);
+                }
+            }
+            // entries of nodes outside the ordered PFG, or added by phase 1
+            while(!workList.isEmpty()){
+                WorkList.Entry entry = workList.pollEntry();
+                propagateWave(cycles.find(entry.pointer()), entry.pointsToSet(), deltas);
+            }
+            // phase 3: add new edges and entries from the changed variables
+            deltas.forEach((pointer, delta) -> {
+                for(Pointer member: cycles.getMembersOf(pointer)){
+                    if(member instanceof VarPtr varPtr){
+                        processVar(varPtr.getVar(), delta);
+                    }
+                }
+            });
+        }
+        logger.info("Wave propagation finished in {} waves", nWaves);
+    }
+
+    private void propagateWave(Pointer pointer, PointsToSet pointsToSet,
+                               Map<Pointer, PointsToSet> deltas) {
+        PointsToSet delta = propagate(pointer, pointsToSet);
+        if(!delta.isEmpty()){
+            deltas.merge(pointer, delta, (d1, d2) -> {
+                // deltas may be shared with work-list entries
+                PointsToSet union = new PointsToSet(objIndexer);
+                union.addAllDiff(d1);
+                union.addAllDiff(d2);
+                return union;
+            });
+        }
+    }
+
+    /**
+     * Processes the field/array accesses and calls on var
+     * for the new objects in delta.
+     */
+    private void processVar(Var var, PointsToSet delta) {
+        List<StoreField> storeFields = var.getStoreFields();
+        List<LoadField> loadFields = var.getLoadFields();
+        List<StoreArray> storeArrays = var.getStoreArrays();
+        List<LoadArray> loadArrays = var.getLoadArrays();
+
+        for(Obj o: delta){
+            storeFields.forEach(stmt -> {
+                // x.f = y
+                JField field = stmt.getFieldRef().resolve();
+                addPFGEdge(pointerFlowGraph.getVarPtr(stmt.getRValue()), pointerFlowGraph.getInstanceField(o, field));
+            });
+            loadFields.forEach(stmt -> {
+                // y = x.f
+                JField field = stmt.getFieldRef().resolve();
+                addPFGEdge(pointerFlowGraph.getInstanceField(o, field), pointerFlowGraph.getVarPtr(stmt.getLValue()));
+            });
+            storeArrays.forEach(stmt -> {
+                // x[*] = y
+                addPFGEdge(pointerFlowGraph.getVarPtr(stmt.getRValue()), pointerFlowGraph.getArrayIndex(o));
+            });
+            loadArrays.forEach(stmt -> {
+                // y = x[*]
+                addPFGEdge(pointerFlowGraph.getArrayIndex(o), pointerFlowGraph.getVarPtr(stmt.getLValue()));
+            });
+            processCall(var, o);
+        }
+    }
+
+    /**
+     * Lazy cycle detection: if a successor of pointer already has the same
+     * points-to set, propagation along the edge is useless, and the edge
+     * is likely on a cycle. Each such edge is checked once, and the cycle
+     * through it, if any, is collapsed.
+     */
+    private void collapseCycle(Pointer pointer) {
+        PointsToSet pts = pointer.getPointsToSet();
+        for(Pointer succ: cycles.getSuccsOf(pointer)){
+            PointsToSet succPts = succ.getPointsToSet();
+            // compare the contents only for equal sizes and unchecked edges
+            if(succPts.size() == pts.size()
+                    && !cycles.isChecked(pointer, succ)
+                    && pts.objects().allMatch(succPts::contains)
+                    && cycles.markChecked(pointer, succ)){
+                List<Pointer> cycle = cycles.findCycle(pointer, succ);
+                if(!cycle.isEmpty()){
+                    collapse(cycle);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Merges the pointers on a cycle into the one with the largest
+     * points-to set, and processes the objects that are new to each
+     * of the merged pointers.
+     */
+    private void collapse(List<Pointer> cycle) {
+        if(typeFilter && !haveSameType(cycle)){
+            // merging would apply one filter to pointers of different types
+            return;
+        }
+        Pointer rep = cycle.get(0);
+        for(Pointer p: cycle){
+            if(p.getPointsToSet().size() > rep.getPointsToSet().size()){
+                rep = p;
+            }
+        }
+        PointsToSet union = rep.getPointsToSet();
+        Map<Pointer, PointsToSet> diffs = Maps.newMap();
+        PointsToSet repDiff = new PointsToSet(objIndexer);
+        for(Pointer p: cycle){
+            if(p != rep){
+                repDiff.addAllDiff(union.addAllDiff(p.getPointsToSet()));
+            }
+        }
+        diffs.put(rep, repDiff);
+        for(Pointer p: cycle){
+            if(p != rep){
+                PointsToSet copy = new PointsToSet(objIndexer);
+                copy.addAllDiff(p.getPointsToSet());
+                diffs.put(p, copy.addAllDiff(union));
+            }
+        }
+        Map<Pointer, List<Pointer>> membersOf = Maps.newMap();
+        cycle.forEach(p -> membersOf.put(p, cycles.getMembersOf(p)));
+        cycles.merge(cycle, rep);
+
+        boolean changed = false;
+        for(Pointer p: cycle){
+            PointsToSet diff = diffs.get(p);
+            if(!diff.isEmpty()){
+                changed = true;
+                for(Pointer member: membersOf.get(p)){
+                    if(member instanceof VarPtr varPtr){
+                        processVar(varPtr.getVar(), diff);
+                    }
+                }
+            }
+        }
+        if(changed){
+            for(Pointer succ: cycles.getSuccsOf(rep)){
+                workList.addEntry(succ, union);
             }
         }
     }
@@ -246,18 +483,19 @@ class Solver {
      */
     private PointsToSet propagate(Pointer pointer, PointsToSet pointsToSet) {
         // TODO - finish me
-        PointsToSet delta = new PointsToSet();
-
         // if(!pointsToSet.isEmpty()){ ::: no need to do this cause pointsToSet here is not delta.
-
-        for(Obj o: pointsToSet){
-            if(pointer.getPointsToSet().addObject(o)){
-                delta.addObject(o);
-            }
+        if(typeFilter){
+            pointsToSet = filterByType(pointer, pointsToSet);
+        }
+        PointsToSet delta = pointer.getPointsToSet().addAllDiff(pointsToSet);
+        if(telemetry != null){
+            telemetry.onPropagate(pointer, pointer instanceof VarPtr varPtr ?
+                    varPtr.getVar().getMethod() : null, delta.size());
+            telemetry.onStep(workList::size, () -> callGraph.reachableMethods().count());
         }
         // check if delta is empty now
         if(!delta.isEmpty()){
-            pointerFlowGraph.getSuccsOf(pointer).forEach(ptr -> {
+            cycles.getSuccsOf(pointer).forEach(ptr -> {
                 workList.addEntry(ptr, delta);
             });
         }
@@ -265,6 +503,66 @@ class Solver {
         return delta;
     }
 
+    /**
+     * @return the objects in pointsToSet whose types are subtypes of
+     * the declared type of pointer. Returns pointsToSet itself if
+     * no object is rejected.
+     */
+    private PointsToSet filterByType(Pointer pointer, PointsToSet pointsToSet) {
+        Type type = getDeclaredType(pointer);
+        if(type == null){
+            return pointsToSet;
+        }
+        boolean rejected = false;
+        for(Obj obj: pointsToSet){
+            if(!subtypes.isSubtype(type, obj.getType())){
+                rejected = true;
+                break;
+            }
+        }
+        if(!rejected){
+            return pointsToSet;
+        }
+        PointsToSet filtered = new PointsToSet(objIndexer);
+        for(Obj obj: pointsToSet){
+            if(subtypes.isSubtype(type, obj.getType())){
+                filtered.addObject(obj);
+            } else {
+                ++nFiltered;
+            }
+        }
+        return filtered;
+    }
+
+    /**
+     * @return the declared type of the values held by pointer,
+     * or null if it is unknown.
+     */
+    private static Type getDeclaredType(Pointer pointer) {
+        if(pointer instanceof VarPtr varPtr){
+            return varPtr.getVar().getType();
+        } else if(pointer instanceof InstanceField instanceField){
+            return instanceField.getField().getType();
+        } else if(pointer instanceof StaticField staticField){
+            return staticField.getField().getType();
+        } else if(pointer instanceof ArrayIndex arrayIndex
+                && arrayIndex.getArray().getType() instanceof ArrayType arrayType){
+            return arrayType.elementType();
+        }
+        return null;
+    }
+
+    private static boolean haveSameType(List<Pointer> pointers) {
+        Type type = getDeclaredType(pointers.get(0));
+        for(Pointer p: pointers){
+            Type t = getDeclaredType(p);
+            if(t == null || !t.equals(type)){
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Processes instance calls when points-to set of the receiver variable changes.
      *
@@ -276,7 +574,7 @@ class Solver {
         List<Invoke> invokeList = var.getInvokes();
         invokeList.forEach(invoke -> {
             JMethod callee = resolveCallee(recv, invoke);
-            workList.addEntry(pointerFlowGraph.getVarPtr(callee.getIR().getThis()), new PointsToSet(recv));
+            workList.addEntry(pointerFlowGraph.getVarPtr(callee.getIR().getThis()), new PointsToSet(objIndexer, recv));
 
             if(callGraph.addEdge(new Edge<>(CallGraphs.getCallKind(invoke), invoke, callee))){
                 addReachable(callee);
@@ -0,0 +1,141 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.ci;
+
+import pascal.taie.util.collection.Maps;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Represents work list in pointer analysis.
+ * <p>
+ * The work list keeps at most one entry per pointer: the points-to sets
+ * that arrive for a pointer which is already in the work list are merged
+ * into its pending set, so that the pointer is polled once with the
+ * union of them. The pending set is the first arriving set itself until
+ * a second set arrives, and is copied then, as the arriving sets may be
+ * shared with other pointers.
+ */
+final class WorkList {
+
+    /**
+     * Pointers in the work list, in the order of their first arrivals.
+     * It may contain pointers whose entries have been removed, which are
+     * skipped when polling.
+     */
+    private final Queue<Pointer> pointers = new ArrayDeque<>();
+
+    private final Map<Pointer, Pending> pendings = Maps.newMap();
+
+    private long nAdded;
+
+    private long nPolled;
+
+    void addEntry(Pointer pointer, PointsToSet pointsToSet) {
+        ++nAdded;
+        Pending pending = pendings.get(pointer);
+        if (pending == null) {
+            pendings.put(pointer, new Pending(pointsToSet));
+            pointers.add(pointer);
+        } else {
+            if (!pending.copied) {
+                PointsToSet copy = new PointsToSet();
+                copy.addAllDiff(pending.pts);
+                pending.pts = copy;
+                pending.copied = true;
+            }
+            pending.pts.addAllDiff(pointsToSet);
+        }
+    }
+
+    Entry pollEntry() {
+        Pointer pointer;
+        Pending pending;
+        do {
+            pointer = pointers.poll();
+            if (pointer == null) {
+                return null;
+            }
+            pending = pendings.remove(pointer);
+        } while (pending == null);
+        ++nPolled;
+        return new Entry(pointer, pending.pts);
+    }
+
+    /**
+     * Removes the entry of given pointer from this work list.
+     *
+     * @return the pending points-to set of the pointer, or null if
+     * the pointer is not in this work list.
+     */
+    PointsToSet remove(Pointer pointer) {
+        Pending pending = pendings.remove(pointer);
+        if (pending == null) {
+            return null;
+        }
+        ++nPolled;
+        return pending.pts;
+    }
+
+    boolean isEmpty() {
+        return pendings.isEmpty();
+    }
+
+    /**
+     * @return the number of pointers in this work list.
+     */
+    int size() {
+        return pendings.size();
+    }
+
+    /**
+     * @return the number of entries added to this work list.
+     */
+    long getNumberOfAddedEntries() {
+        return nAdded;
+    }
+
+    /**
+     * @return the number of entries polled from this work list,
+     * i.e., the added entries after coalescing.
+     */
+    long getNumberOfPolledEntries() {
+        return nPolled;
+    }
+
+    record Entry(Pointer pointer, PointsToSet pointsToSet) {
+    }
+
+    private static class Pending {
+
+        private PointsToSet pts;
+
+        private boolean copied;
+
+        private Pending(PointsToSet pts) {
+            this.pts = pts;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.ci;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import pascal.taie.Main;
+import pascal.taie.World;
+import pascal.taie.analysis.pta.PointerAnalysisResult;
+import pascal.taie.ir.exp.Var;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the results of the solving modes of {@link CIPTA} against
+ * the ones of the default mode.
+ */
+public class CIPTAModeTest {
+
+    private static final String MAIN = "<Example: void main(java.lang.String[])>";
+
+    /**
+     * Program with a field flow, a copy cycle and a virtual call
+     * with two receiver types.
+     */
+    private static final String PROGRAM = """
+            public class Example {
+                public static void main(String[] args) {
+                    A a = new A();
+                    a.f = new B();
+                    A x = a;
+                    A y = x;
+                    while (args.length > 0) {
+                        x = y;
+                        y = x;
+                    }
+                    B b = y.f;
+                    I i = args.length > 1 ? new C() : (I) new D();
+                    Object o = i.m(b);
+                    Object[] arr = new Object[1];
+                    arr[0] = o;
+                    Object p = arr[0];
+                }
+            }
+
+            class A {
+                B f;
+            }
+
+            class B {
+            }
+
+            interface I {
+                Object m(Object o);
+            }
+
+            class C implements I {
+                public Object m(Object o) {
+                    return o;
+                }
+            }
+
+            class D implements I {
+                public Object m(Object o) {
+                    return new B();
+                }
+            }
+            """;
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void testWave() throws IOException {
+        File dir = writeProgram();
+        Snapshot expected = analyze(dir, "");
+        Snapshot actual = analyze(dir, "wave:true");
+        assertEquals(expected.pointsTo(), actual.pointsTo());
+        assertEquals(expected.callEdges(), actual.callEdges());
+    }
+
+    @Test
+    public void testTypeFilter() throws IOException {
+        File dir = writeProgram();
+        Snapshot unfiltered = analyze(dir, "");
+        Snapshot filtered = analyze(dir, "type-filter:true");
+        // filtering only removes objects that cannot be pointed to
+        filtered.pointsTo().forEach((var, objs) -> assertTrue(var,
+                unfiltered.pointsTo().getOrDefault(var, Set.of()).containsAll(objs)));
+        assertTrue(unfiltered.callEdges().containsAll(filtered.callEdges()));
+        // but keeps the objects of the declared types
+        Set<String> p = filtered.pointsTo(MAIN, "p");
+        assertEquals(p.toString(), 2, p.size());
+        assertTrue(p.toString(), p.stream().allMatch(obj -> obj.contains("new B")));
+        Set<String> i = filtered.pointsTo(MAIN, "i");
+        assertEquals(i.toString(), 2, i.size());
+        assertTrue(i.toString(), i.stream().anyMatch(obj -> obj.contains("new C")));
+        assertTrue(i.toString(), i.stream().anyMatch(obj -> obj.contains("new D")));
+        for (String callee : Set.of("<C: java.lang.Object m(java.lang.Object)>",
+                "<D: java.lang.Object m(java.lang.Object)>")) {
+            assertTrue(callee, filtered.callEdges().stream()
+                    .anyMatch(edge -> edge.endsWith(" -> " + callee)));
+        }
+    }
+
+    private File writeProgram() throws IOException {
+        File dir = tempFolder.newFolder("example");
+        Files.writeString(dir.toPath().resolve("Example.java"), PROGRAM);
+        return dir;
+    }
+
+    /**
+     * Runs {@link CIPTA} with given options on the program in dir.
+     *
+     * @return the result in terms of strings, which can be compared
+     * across Worlds.
+     */
+    private static Snapshot analyze(File dir, String options) {
+        Main.main("-cp", dir.getPath(), "-m", "Example",
+                "-a", CIPTA.ID + "=" + options);
+        PointerAnalysisResult result = World.get().getResult(CIPTA.ID);
+        Map<String, Set<String>> pointsTo = new TreeMap<>();
+        for (Var var : result.getVars()) {
+            Set<String> objs = new TreeSet<>();
+            result.getPointsToSet(var).forEach(obj -> objs.add(obj.toString()));
+            pointsTo.put(var.getMethod() + "/" + var.getName(), objs);
+        }
+        Set<String> callEdges = new TreeSet<>();
+        result.getCallGraph().edges().forEach(edge ->
+                callEdges.add(edge.getCallSite() + " -> " + edge.getCallee()));
+        return new Snapshot(pointsTo, callEdges);
+    }
+
+    private record Snapshot(Map<String, Set<String>> pointsTo,
+                            Set<String> callEdges) {
+
+        /**
+         * @return the objects pointed to by the variable of given name
+         * in given method.
+         */
+        private Set<String> pointsTo(String method, String var) {
+            return pointsTo.getOrDefault(method + "/" + var, Set.of());
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.cs;
+
+import pascal.taie.config.AnalysisOptions;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Time and memory budget of a pointer analysis.
+ * <p>
+ * The solver calls {@link #check()} once per step, and the budget is
+ * actually examined every {@link #CHECK_INTERVAL} calls, so that the
+ * checks are cheap compared to the steps themselves.
+ * <p>
+ * The memory budget limits the growth of the heap that is live after
+ * garbage collection over a baseline taken at the start of each stage.
+ * Garbage thus does not count, and neither do the results of earlier
+ * stages that are alive when a stage starts. A check first compares the
+ * current usage of the heap memory pools, which includes garbage and is
+ * thus an upper bound of the live heap. Only if that exceeds the budget,
+ * it collects the garbage and compares the usage after collection, as
+ * the collection usage of the pools is only updated by collections and
+ * may be stale.
+ */
+final class AnalysisBudget {
+
+    private static final int CHECK_INTERVAL = 1024;
+
+    private static final long MB = 1024 * 1024;
+
+    /**
+     * Time budget in milliseconds.
+     */
+    private final long timeLimit;
+
+    /**
+     * Memory budget in bytes of heap growth after garbage collection.
+     */
+    private final long memoryLimit;
+
+    private long deadline = Long.MAX_VALUE;
+
+    /**
+     * Heap pools that report their usage after garbage collection.
+     */
+    private final List<MemoryPoolMXBean> heapPools =
+            ManagementFactory.getMemoryPoolMXBeans().stream()
+                    .filter(pool -> pool.getType() == MemoryType.HEAP
+                            && pool.getCollectionUsage() != null)
+                    .toList();
+
+    /**
+     * Used heap after garbage collection at the start of current stage.
+     */
+    private long memoryBaseline;
+
+    private int nChecks;
+
+    private AnalysisBudget(long timeLimit, long memoryLimit) {
+        this.timeLimit = timeLimit;
+        this.memoryLimit = memoryLimit;
+    }
+
+    /**
+     * Creates the budget given by options "budget-ms" and "budget-mb".
+     *
+     * @return the budget, or null if neither option is set.
+     */
+    static AnalysisBudget of(AnalysisOptions options) {
+        boolean hasTime = options.has("budget-ms");
+        boolean hasMemory = options.has("budget-mb");
+        if (!hasTime && !hasMemory) {
+            return null;
+        }
+        return new AnalysisBudget(
+                hasTime ? options.getInt("budget-ms") : Long.MAX_VALUE,
+                hasMemory ? options.getInt("budget-mb") * MB : Long.MAX_VALUE);
+    }
+
+    /**
+     * Starts the clock of the time budget.
+     */
+    void start() {
+        long now = System.currentTimeMillis();
+        deadline = timeLimit > Long.MAX_VALUE - now ?
+                Long.MAX_VALUE : now + timeLimit;
+    }
+
+    /**
+     * Takes the memory baseline of a stage, after a full garbage collection.
+     */
+    void startStage() {
+        if (memoryLimit != Long.MAX_VALUE) {
+            System.gc();
+            memoryBaseline = getUsedAfterGC();
+        }
+    }
+
+    /**
+     * @return the remaining time in milliseconds.
+     */
+    long getRemainingTime() {
+        return Math.max(0, deadline - System.currentTimeMillis());
+    }
+
+    /**
+     * @throws ExceededException if the budget runs out.
+     */
+    void check() {
+        if ((++nChecks & (CHECK_INTERVAL - 1)) == 0 && isExceeded()) {
+            throw new ExceededException();
+        }
+    }
+
+    private boolean isExceeded() {
+        if (System.currentTimeMillis() >= deadline) {
+            return true;
+        }
+        if (memoryLimit == Long.MAX_VALUE
+                || getUsed(MemoryPoolMXBean::getUsage) - memoryBaseline <= memoryLimit) {
+            return false;
+        }
+        System.gc();
+        return getUsedAfterGC() - memoryBaseline > memoryLimit;
+    }
+
+    /**
+     * @return the used heap after the last garbage collection of each pool.
+     */
+    private long getUsedAfterGC() {
+        return getUsed(MemoryPoolMXBean::getCollectionUsage);
+    }
+
+    /**
+     * @return the sum of the used heap of the pools, as reported by getUsage
+     * for each pool.
+     */
+    private long getUsed(Function<MemoryPoolMXBean, MemoryUsage> getUsage) {
+        long used = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            MemoryUsage usage = getUsage.apply(pool);
+            if (usage != null) {
+                used += usage.getUsed();
+            }
+        }
+        return used;
+    }
+
+    /**
+     * Thrown when the budget runs out during solving.
+     */
+    static class ExceededException extends RuntimeException {
+
+        private ExceededException() {
+            super("analysis budget exceeded", null, false, false);
+        }
+    }
+}
@@ -0,0 +1,538 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.core.cs.element;
+
+import pascal.taie.analysis.pta.core.cs.context.Context;
+import pascal.taie.analysis.pta.core.cs.context.IndexedContext;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.analysis.pta.pts.Indexer;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.language.classes.JField;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.util.collection.Maps;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Context-sensitive element manager that numbers its elements densely.
+ * <p>
+ * Vars, Objs, fields, call sites and methods are numbered densely when
+ * they are first seen, and contexts are keyed by their own IDs if they
+ * are {@link IndexedContext}s of one ID space, e.g., the contexts of
+ * one trie. Other contexts are numbered when they are first seen.
+ * A context-sensitive element is then resolved by one lookup of its
+ * element ID and one probe of a primitive table keyed by
+ * (context ID, element ID), instead of two nested hash map lookups that
+ * hash the contexts.
+ * <p>
+ * Each created element also gets a dense ID among the elements of its
+ * kind, where pointers (variables, static fields, instance fields and
+ * array indexes) share one ID space, so that other data structures can
+ * index them by arrays. The ID is stored in the element itself, so
+ * looking it up does not hash. The IDs of objects also number the objects
+ * in points-to sets, as this manager is their {@link Indexer}.
+ */
+public class IndexedCSManager implements CSManager, Indexer<CSObj> {
+
+    private final Numbering<Var> varIds = new Numbering<>();
+
+    private final Numbering<Obj> objIds = new Numbering<>();
+
+    private final Numbering<JField> fieldIds = new Numbering<>();
+
+    private final Numbering<Invoke> callSiteIds = new Numbering<>();
+
+    private final Numbering<JMethod> methodIds = new Numbering<>();
+
+    /**
+     * ID space of the contexts keyed by their own IDs, which is the one
+     * of the first {@link IndexedContext} given to this manager.
+     */
+    private Object contextIdSpace;
+
+    /**
+     * IDs of the other contexts, which are negative, so that they do not
+     * clash with the IDs of the contexts in {@link #contextIdSpace}.
+     */
+    private final Map<Context, Integer> otherContextIds = Maps.newMap();
+
+    private final LongKeyTable<CSVar> csVars = new LongKeyTable<>();
+
+    private final LongKeyTable<CSObj> csObjs = new LongKeyTable<>();
+
+    private final LongKeyTable<InstanceField> instanceFields = new LongKeyTable<>();
+
+    private final LongKeyTable<CSCallSite> csCallSites = new LongKeyTable<>();
+
+    private final LongKeyTable<CSMethod> csMethods = new LongKeyTable<>();
+
+    private final Map<JField, StaticField> staticFields = Maps.newMap();
+
+    private final Map<CSObj, ArrayIndex> arrayIndexes = Maps.newMap();
+
+    /**
+     * Created elements of each kind, indexed by their element IDs.
+     */
+    private final List<Pointer> pointers = new ArrayList<>();
+
+    private final List<CSObj> objects = new ArrayList<>();
+
+    private final List<CSCallSite> callSites = new ArrayList<>();
+
+    private final List<CSMethod> methods = new ArrayList<>();
+
+    /**
+     * IDs of the objects that are not created by this manager, which
+     * are numbered after the created ones when they are first seen.
+     */
+    private final Map<CSObj, Integer> otherObjIds = Maps.newMap();
+
+    private final List<CSVar> varList = new ArrayList<>();
+
+    private final List<InstanceField> instanceFieldList = new ArrayList<>();
+
+    @Override
+    public CSVar getCSVar(Context context, Var var) {
+        return getOrCreate(csVars, key(context, varIds.getId(var)), () -> {
+            CSVar csVar = new IndexedCSVar(var, context, pointers.size());
+            pointers.add(csVar);
+            varList.add(csVar);
+            return csVar;
+        });
+    }
+
+    @Override
+    public StaticField getStaticField(JField field) {
+        return staticFields.computeIfAbsent(field, f -> {
+            StaticField staticField = new IndexedStaticField(f, pointers.size());
+            pointers.add(staticField);
+            return staticField;
+        });
+    }
+
+    @Override
+    public InstanceField getInstanceField(CSObj base, JField field) {
+        long key = key(getIndex(base), fieldIds.getId(field));
+        return getOrCreate(instanceFields, key, () -> {
+            InstanceField instanceField = new IndexedInstanceField(
+                    base, field, pointers.size());
+            pointers.add(instanceField);
+            instanceFieldList.add(instanceField);
+            return instanceField;
+        });
+    }
+
+    @Override
+    public ArrayIndex getArrayIndex(CSObj array) {
+        return arrayIndexes.computeIfAbsent(array, a -> {
+            ArrayIndex arrayIndex = new IndexedArrayIndex(a, pointers.size());
+            pointers.add(arrayIndex);
+            return arrayIndex;
+        });
+    }
+
+    @Override
+    public Collection<CSVar> getCSVars() {
+        return Collections.unmodifiableList(varList);
+    }
+
+    @Override
+    public Collection<StaticField> getStaticFields() {
+        return Collections.unmodifiableCollection(staticFields.values());
+    }
+
+    @Override
+    public Collection<InstanceField> getInstanceFields() {
+        return Collections.unmodifiableList(instanceFieldList);
+    }
+
+    @Override
+    public Collection<ArrayIndex> getArrayIndexes() {
+        return Collections.unmodifiableCollection(arrayIndexes.values());
+    }
+
+    @Override
+    public CSObj getCSObj(Context heapContext, Obj obj) {
+        return getOrCreate(csObjs, key(heapContext, objIds.getId(obj)), () -> {
+            CSObj csObj = new IndexedCSObj(obj, heapContext, objects.size());
+            objects.add(csObj);
+            return csObj;
+        });
+    }
+
+    @Override
+    public CSCallSite getCSCallSite(Context context, Invoke callSite) {
+        return getOrCreate(csCallSites, key(context, callSiteIds.getId(callSite)), () -> {
+            CSCallSite csCallSite = new IndexedCSCallSite(
+                    callSite, context, callSites.size());
+            callSites.add(csCallSite);
+            return csCallSite;
+        });
+    }
+
+    @Override
+    public CSMethod getCSMethod(Context context, JMethod method) {
+        return getOrCreate(csMethods, key(context, methodIds.getId(method)), () -> {
+            CSMethod csMethod = new IndexedCSMethod(method, context, methods.size());
+            methods.add(csMethod);
+            return csMethod;
+        });
+    }
+
+    /**
+     * @return the ID of given pointer, which is unique among the pointers
+     * created by this manager, or -1 if it is not created by this manager.
+     */
+    public int getId(Pointer pointer) {
+        return find(pointers, pointer);
+    }
+
+    /**
+     * @return the pointer of given ID.
+     */
+    public Pointer getPointer(int id) {
+        return pointers.get(id);
+    }
+
+    public int getNumberOfPointers() {
+        return pointers.size();
+    }
+
+    /**
+     * @return the ID of given object, which is unique among the objects
+     * created by this manager, or -1 if it is not created by this manager.
+     */
+    public int getId(CSObj obj) {
+        return find(objects, obj);
+    }
+
+    /**
+     * @return the object of given ID.
+     */
+    public CSObj getCSObj(int id) {
+        return objects.get(id);
+    }
+
+    /**
+     * @return the number of objects numbered by this manager, including
+     * the ones that are not created by it but given to {@link #getIndex}.
+     */
+    public int getNumberOfObjects() {
+        return objects.size();
+    }
+
+    /**
+     * @return the ID of given object. An object that is not created by
+     * this manager, e.g., an object of an earlier analysis, is assigned
+     * the next ID on first use.
+     */
+    @Override
+    public int getIndex(CSObj obj) {
+        int id = find(objects, obj);
+        if (id < 0) {
+            id = otherObjIds.computeIfAbsent(obj, o -> {
+                objects.add(o);
+                return objects.size() - 1;
+            });
+        }
+        return id;
+    }
+
+    @Override
+    public CSObj getObject(int index) {
+        return objects.get(index);
+    }
+
+    /**
+     * @return the ID of given call site, which is unique among the call
+     * sites created by this manager, or -1 if it is not created by this manager.
+     */
+    public int getId(CSCallSite callSite) {
+        return find(callSites, callSite);
+    }
+
+    public int getNumberOfCallSites() {
+        return callSites.size();
+    }
+
+    /**
+     * @return the ID of given method, which is unique among the methods
+     * created by this manager, or -1 if it is not created by this manager.
+     */
+    public int getId(CSMethod method) {
+        return find(methods, method);
+    }
+
+    public int getNumberOfMethods() {
+        return methods.size();
+    }
+
+    /**
+     * @return the ID stored in given element if the element is the one
+     * of that ID in elems, otherwise -1.
+     */
+    private static int find(List<?> elems, Object elem) {
+        if (elem instanceof Identified identified) {
+            int id = identified.id();
+            if (id < elems.size() && elems.get(id) == elem) {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the element of given key in table. If it is absent,
+     * creates it.
+     */
+    private static <E> E getOrCreate(LongKeyTable<E> table, long key,
+                                     Supplier<E> creator) {
+        E e = table.get(key);
+        if (e == null) {
+            e = creator.get();
+            table.put(key, e);
+        }
+        return e;
+    }
+
+    private long key(Context context, int elemId) {
+        return key(getContextId(context), elemId);
+    }
+
+    private int getContextId(Context context) {
+        if (context instanceof IndexedContext indexed) {
+            if (contextIdSpace == null) {
+                contextIdSpace = indexed.getIdSpace();
+            }
+            if (indexed.getIdSpace() == contextIdSpace) {
+                return indexed.getId();
+            }
+        }
+        return otherContextIds.computeIfAbsent(context,
+                c -> -1 - otherContextIds.size());
+    }
+
+    private static long key(int high, int low) {
+        return ((long) high << 32) | (low & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Assigns dense IDs to objects in the order they are first seen.
+     */
+    private static class Numbering<T> {
+
+        private final Map<T, Integer> ids = Maps.newMap();
+
+        private int getId(T elem) {
+            return ids.computeIfAbsent(elem, e -> ids.size());
+        }
+    }
+
+    /**
+     * Element that stores its ID.
+     */
+    private interface Identified {
+
+        int id();
+    }
+
+    private static final class IndexedCSVar extends CSVar implements Identified {
+
+        private final int id;
+
+        private IndexedCSVar(Var var, Context context, int id) {
+            super(var, context);
+            this.id = id;
+        }
+
+        @Override
+        public int id() {
+            return id;
+        }
+    }
+
+    private static final class IndexedStaticField extends StaticField
+            implements Identified {
+
+        private final int id;
+
+        private IndexedStaticField(JField field, int id) {
+            super(field);
+            this.id = id;
+        }
+
+        @Override
+        public int id() {
+            return id;
+        }
+    }
+
+    private static final class IndexedInstanceField extends InstanceField
+            implements Identified {
+
+        private final int id;
+
+        private IndexedInstanceField(CSObj base, JField field, int id) {
+            super(base, field);
+            this.id = id;
+        }
+
+        @Override
+        public int id() {
+            return id;
+        }
+    }
+
+    private static final class IndexedArrayIndex extends ArrayIndex
+            implements Identified {
+
+        private final int id;
+
+        private IndexedArrayIndex(CSObj array, int id) {
+            super(array);
+            this.id = id;
+        }
+
+        @Override
+        public int id() {
+            return id;
+        }
+    }
+
+    private static final class IndexedCSObj extends CSObj implements Identified {
+
+        private final int id;
+
+        private IndexedCSObj(Obj obj, Context context, int id) {
+            super(obj, context);
+            this.id = id;
+        }
+
+        @Override
+        public int id() {
+            return id;
+        }
+    }
+
+    private static final class IndexedCSCallSite extends CSCallSite
+            implements Identified {
+
+        private final int id;
+
+        private IndexedCSCallSite(Invoke callSite, Context context, int id) {
+            super(callSite, context);
+            this.id = id;
+        }
+
+        @Override
+        public int id() {
+            return id;
+        }
+    }
+
+    private static final class IndexedCSMethod extends CSMethod
+            implements Identified {
+
+        private final int id;
+
+        private IndexedCSMethod(JMethod method, Context context, int id) {
+            super(method, context);
+            this.id = id;
+        }
+
+        @Override
+        public int id() {
+            return id;
+        }
+    }
+
+    /**
+     * Open-addressing hash table with primitive long keys.
+     */
+    private static class LongKeyTable<V> {
+
+        private static final int INITIAL_CAPACITY = 64;
+
+        private long[] keys = new long[INITIAL_CAPACITY];
+
+        private Object[] values = new Object[INITIAL_CAPACITY];
+
+        private int size;
+
+        @SuppressWarnings("unchecked")
+        private V get(long key) {
+            int mask = keys.length - 1;
+            for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+                Object value = values[i];
+                if (value == null || keys[i] == key) {
+                    return (V) value;
+                }
+            }
+        }
+
+        /**
+         * Puts a key that is absent from this table.
+         */
+        private void put(long key, V value) {
+            if (2 * (size + 1) > keys.length) {
+                resize();
+            }
+            insert(keys, values, key, value);
+            ++size;
+        }
+
+        private void resize() {
+            long[] newKeys = new long[keys.length * 2];
+            Object[] newValues = new Object[values.length * 2];
+            for (int i = 0; i < keys.length; ++i) {
+                if (values[i] != null) {
+                    insert(newKeys, newValues, keys[i], values[i]);
+                }
+            }
+            keys = newKeys;
+            values = newValues;
+        }
+
+        private static void insert(long[] keys, Object[] values,
+                                   long key, Object value) {
+            int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            while (values[i] != null) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.core.cs.context;
+
+/**
+ * Context that has a dense int ID, which is unique among the contexts
+ * of its ID space, so that data structures can key contexts by their IDs
+ * instead of hashing them.
+ */
+public interface IndexedContext extends Context {
+
+    /**
+     * @return the ID of this context, which is unique in its ID space.
+     */
+    int getId();
+
+    /**
+     * @return the object that identifies the ID space of this context.
+     * Contexts of different ID spaces may have equal IDs.
+     */
+    Object getIdSpace();
+}
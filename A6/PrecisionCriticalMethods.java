@@ -0,0 +1,127 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.cs;
+
+import pascal.taie.analysis.pta.PointerAnalysisResult;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.exp.FieldAccess;
+import pascal.taie.ir.exp.InstanceFieldAccess;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.LoadField;
+import pascal.taie.ir.stmt.New;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.ir.stmt.StoreField;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.util.collection.Sets;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Finds the methods that may gain precision from context sensitivity,
+ * by the object flows through them in a context-insensitive result.
+ * <p>
+ * This is a lightweight variant of Zipper. A method is precision-critical
+ * if objects flow through it from its inputs (parameters and this) to its
+ * outputs (return variables), i.e., the objects of different callers may
+ * be merged by it, which happens if
+ * <ul>
+ *     <li>an input object is returned (direct flow);</li>
+ *     <li>an input object is stored into a field of this (wrapped flow);</li>
+ *     <li>an object loaded from a field of this is returned (unwrapped flow);</li>
+ *     <li>an object allocated in it is returned (factory).</li>
+ * </ul>
+ */
+final class PrecisionCriticalMethods {
+
+    private PrecisionCriticalMethods() {
+    }
+
+    static Set<JMethod> find(PointerAnalysisResult ciResult) {
+        Set<JMethod> result = Sets.newSet();
+        ciResult.getCallGraph().reachableMethods().forEach(method -> {
+            if (!method.isAbstract() && isCritical(method, ciResult)) {
+                result.add(method);
+            }
+        });
+        return result;
+    }
+
+    private static boolean isCritical(JMethod method, PointerAnalysisResult pta) {
+        IR ir = method.getIR();
+        Set<Obj> outs = pointsTo(ir.getReturnVars(), pta);
+        if (outs.isEmpty()) {
+            return false;
+        }
+        Set<Obj> ins = pointsTo(ir.getParams(), pta);
+        Var thisVar = ir.getThis();
+        if (thisVar != null) {
+            ins.addAll(pta.getPointsToSet(thisVar));
+        }
+        if (intersects(ins, outs)) {
+            return true;
+        }
+        for (Stmt stmt : ir.getStmts()) {
+            if (stmt instanceof StoreField store && isThisAccess(store.getFieldAccess(), thisVar)) {
+                if (intersects(pta.getPointsToSet(store.getRValue()), ins)) {
+                    return true;
+                }
+            } else if (stmt instanceof LoadField load && isThisAccess(load.getFieldAccess(), thisVar)) {
+                if (intersects(pta.getPointsToSet(load.getLValue()), outs)) {
+                    return true;
+                }
+            } else if (stmt instanceof New alloc) {
+                if (intersects(pta.getPointsToSet(alloc.getLValue()), outs)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isThisAccess(FieldAccess access, Var thisVar) {
+        return thisVar != null && access instanceof InstanceFieldAccess fieldAccess
+                && fieldAccess.getBase() == thisVar;
+    }
+
+    private static Set<Obj> pointsTo(Collection<Var> vars, PointerAnalysisResult pta) {
+        Set<Obj> result = Sets.newSet();
+        vars.forEach(var -> result.addAll(pta.getPointsToSet(var)));
+        return result;
+    }
+
+    private static boolean intersects(Set<Obj> s1, Set<Obj> s2) {
+        if (s1.size() > s2.size()) {
+            Set<Obj> tmp = s1;
+            s1 = s2;
+            s2 = tmp;
+        }
+        for (Obj obj : s1) {
+            if (s2.contains(obj)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
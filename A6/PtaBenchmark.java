@@ -0,0 +1,417 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.bench;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pascal.taie.Main;
+import pascal.taie.analysis.graph.callgraph.CallGraph;
+import pascal.taie.analysis.graph.callgraph.Edge;
+import pascal.taie.analysis.pta.PointerAnalysisResult;
+import pascal.taie.analysis.pta.core.cs.CSCallGraph;
+import pascal.taie.analysis.pta.core.cs.element.CSMethod;
+import pascal.taie.analysis.pta.cs.CSPTA;
+import pascal.taie.config.AnalysisConfig;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.language.classes.JMethod;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Benchmark of context-sensitive pointer analysis across context selectors.
+ * <p>
+ * It runs the pointer analysis with each context selector on the bundled
+ * programs, on the given programs, and on synthetic programs of growing
+ * sizes, with warmup runs and repetitions, and records for each run the
+ * time, the peak heap usage, the numbers of contexts and call graph edges,
+ * and precision metrics. The results are written to results.csv and
+ * results.json in the output directory, one row per measured run.
+ * <p>
+ * Each measured run is executed in a fresh JVM, so that runs do not share
+ * the world or the heap. The JVM builds the world, warms up by running the
+ * analysis the given number of times, and then runs the measured analysis.
+ * The time and the peak heap usage of a run are measured around the
+ * measured analysis only; the peak heap usage includes the world, which
+ * is the same for all selectors on a program.
+ * <p>
+ * The context-insensitive baseline, "ci", is the A6 solver with the
+ * context-insensitive selector rather than the A5 CI solver, as A5 and A6
+ * are separate projects with their own frameworks, and the benchmark is
+ * part of A6. It solves the same constraints as the A5 solver, with the
+ * same data structures as the context-sensitive rows.
+ * <p>
+ * The bundled programs are the subdirectories of bench-programs,
+ * each of which contains the source of a small Java 7 program whose
+ * main class is Main.
+ * <p>
+ * Usage:
+ * <pre>
+ * PtaBenchmark [--program &lt;class-path&gt; &lt;main-class&gt;]...
+ *              [--bundled A6/bench-programs] [--sizes 10,20,40]
+ *              [--selectors ci,1-call,...] [--warmup 1] [--repeat 3]
+ *              [--pta-options &lt;options&gt;] [--jvm-options &lt;options&gt;]
+ *              [--output output/pta-bench]
+ * </pre>
+ * where the PTA options have the form key1:value1;key2:value2, and
+ * the JVM options are separated by spaces.
+ */
+public final class PtaBenchmark {
+
+    private static final Logger logger = LogManager.getLogger(PtaBenchmark.class);
+
+    /**
+     * ID of the context-sensitive pointer analysis.
+     */
+    private static final String PTA_ID = "cspta";
+
+    /**
+     * Context selectors, by the values of option "cs" of the analysis.
+     * The context-insensitive configuration uses the context-insensitive
+     * selector of the same solver.
+     */
+    private static final List<String> SELECTORS = List.of(
+            "ci", "1-call", "2-call", "1-obj", "2-obj", "1-type", "2-type");
+
+    private static final List<Integer> SIZES = List.of(10, 20, 40);
+
+    private static final String BUNDLED_PROGRAMS = "A6/bench-programs";
+
+    private static final String BUNDLED_MAIN_CLASS = "Main";
+
+    /**
+     * Default options of the analysis, which are otherwise filled
+     * by the analysis planner from the analysis configuration file.
+     */
+    private static final Map<String, Object> DEFAULT_OPTIONS = Map.of(
+            "merge-string-constants", false,
+            "merge-string-objects", true,
+            "merge-string-builders", true,
+            "merge-exception-objects", true);
+
+    /**
+     * Argument that makes the JVM perform a single measured run,
+     * see {@link #runOnce}.
+     */
+    private static final String RUN_ONCE = "--run-once";
+
+    /**
+     * Prefix of the output line by which a single run reports its results.
+     */
+    private static final String RESULT_PREFIX = "@pta-bench-result:";
+
+    private static final long MB = 1024 * 1024;
+
+    private PtaBenchmark() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals(RUN_ONCE)) {
+            runOnce(args[1], args[2], args[3], args[4], Integer.parseInt(args[5]));
+            return;
+        }
+        List<Program> programs = new ArrayList<>();
+        File bundled = new File(BUNDLED_PROGRAMS);
+        List<Integer> sizes = SIZES;
+        List<String> selectors = SELECTORS;
+        int warmup = 1, repeat = 3;
+        String ptaOptions = "";
+        List<String> jvmOptions = List.of();
+        File outputDir = new File("output/pta-bench");
+        for (int i = 0; i < args.length; ++i) {
+            switch (args[i]) {
+                case "--program" -> {
+                    programs.add(new Program(args[i + 2], args[i + 1], args[i + 2], -1));
+                    i += 2;
+                }
+                case "--bundled" -> bundled = new File(args[++i]);
+                case "--sizes" -> sizes = Arrays.stream(args[++i].split(","))
+                        .map(Integer::parseInt).toList();
+                case "--selectors" -> selectors = List.of(args[++i].split(","));
+                case "--warmup" -> warmup = Integer.parseInt(args[++i]);
+                case "--repeat" -> repeat = Integer.parseInt(args[++i]);
+                case "--pta-options" -> ptaOptions = args[++i];
+                case "--jvm-options" -> jvmOptions = List.of(args[++i].trim().split("\\s+"));
+                case "--output" -> outputDir = new File(args[++i]);
+                default -> throw new IllegalArgumentException(
+                        "Unknown argument: " + args[i]);
+            }
+        }
+        File[] bundledDirs = bundled.listFiles(File::isDirectory);
+        if (bundledDirs == null) {
+            logger.warn("No bundled programs found in {}", bundled);
+        } else {
+            Arrays.sort(bundledDirs);
+            for (File dir : bundledDirs) {
+                programs.add(new Program(dir.getName(), dir.getPath(),
+                        BUNDLED_MAIN_CLASS, -1));
+            }
+        }
+        for (int size : sizes) {
+            File dir = SyntheticProgramGenerator.generate(
+                    new File(outputDir, "synthetic/size-" + size), size);
+            programs.add(new Program("synthetic-" + size, dir.getPath(),
+                    SyntheticProgramGenerator.MAIN_CLASS, size));
+        }
+        List<Measurement> results = new ArrayList<>();
+        for (Program program : programs) {
+            for (String selector : selectors) {
+                for (int i = 0; i < repeat; ++i) {
+                    Measurement m = run(program, selector, ptaOptions,
+                            jvmOptions, warmup, i);
+                    logger.info("Benchmark {} {} #{}: {}ms, {}MB, {} contexts, " +
+                                    "{} call edges", program.name(), selector, i,
+                            m.timeMs(), m.peakMemory() / MB, m.contexts(), m.callEdges());
+                    results.add(m);
+                }
+            }
+        }
+        if (!outputDir.exists() && !outputDir.mkdirs()) {
+            throw new FileNotFoundException("Failed to create " + outputDir);
+        }
+        writeCSV(new File(outputDir, "results.csv"), results);
+        writeJSON(new File(outputDir, "results.json"), results);
+        logger.info("Benchmark results written to {}", outputDir);
+    }
+
+    /**
+     * Runs the analysis on the program in a fresh JVM, after given number
+     * of warmup runs in the same JVM.
+     */
+    private static Measurement run(Program program, String selector,
+                                   String ptaOptions, List<String> jvmOptions,
+                                   int warmup, int repetition) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+        command.addAll(jvmOptions);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(PtaBenchmark.class.getName());
+        command.addAll(List.of(RUN_ONCE, program.classPath(), program.mainClass(),
+                selector, ptaOptions, String.valueOf(warmup)));
+        Process process = new ProcessBuilder(command)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        String result = null;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(RESULT_PREFIX)) {
+                    result = line.substring(RESULT_PREFIX.length());
+                } else {
+                    System.out.println(line);
+                }
+            }
+        }
+        int exitCode;
+        try {
+            exitCode = process.waitFor();
+        } catch (InterruptedException e) {
+            process.destroy();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while running " + program.name(), e);
+        }
+        if (exitCode != 0 || result == null) {
+            throw new IOException(String.format(
+                    "Run of %s with %s failed with exit code %d",
+                    program.name(), selector, exitCode));
+        }
+        String[] values = result.split(",");
+        return new Measurement(program.name(), program.size(), selector,
+                repetition,
+                Long.parseLong(values[0]),
+                Long.parseLong(values[1]),
+                Long.parseLong(values[2]),
+                Long.parseLong(values[3]),
+                Long.parseLong(values[4]),
+                Long.parseLong(values[5]),
+                Long.parseLong(values[6]),
+                Long.parseLong(values[7]),
+                Double.parseDouble(values[8]));
+    }
+
+    /**
+     * Builds the world of the program, runs the analysis on it warmup times
+     * and then once more measured, and prints the results of the measured
+     * run in one line prefixed by {@link #RESULT_PREFIX}, in the order of
+     * the columns of {@link Measurement} from timeMs on.
+     */
+    private static void runOnce(String classPath, String mainClass,
+                                String selector, String ptaOptions, int warmup) {
+        Main.main("-pp", "-cp", classPath, "-m", mainClass);
+        AnalysisConfig config = new AnalysisConfig(PTA_ID,
+                makeOptions(selector, ptaOptions));
+        for (int i = 0; i < warmup; ++i) {
+            new CSPTA(config).analyze();
+        }
+        System.gc();
+        List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans()
+                .stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .toList();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+        long start = System.nanoTime();
+        PointerAnalysisResult result = new CSPTA(config).analyze();
+        long timeMs = (System.nanoTime() - start) / 1_000_000;
+        long peakMemory = heapPools.stream()
+                .mapToLong(pool -> pool.getPeakUsage().getUsed())
+                .sum();
+        CallGraph<Invoke, JMethod> callGraph = result.getCallGraph();
+        CSCallGraph csCallGraph = result.getCSCallGraph();
+        Map<Invoke, Long> calleesPerSite = callGraph.edges().collect(
+                Collectors.groupingBy(Edge::getCallSite, Collectors.counting()));
+        List<Object> values = List.of(timeMs, peakMemory,
+                callGraph.reachableMethods().count(),
+                csCallGraph.reachableMethods().count(),
+                csCallGraph.reachableMethods().map(CSMethod::getContext).distinct().count(),
+                callGraph.edges().count(),
+                csCallGraph.edges().count(),
+                calleesPerSite.values().stream().filter(n -> n > 1).count(),
+                result.getVars().stream()
+                        .mapToInt(v -> result.getPointsToSet(v).size())
+                        .average()
+                        .orElse(0));
+        System.out.println(RESULT_PREFIX + values.stream()
+                .map(String::valueOf)
+                .collect(Collectors.joining(",")));
+    }
+
+    /**
+     * @return the key-value pairs of the options of the analysis, i.e.,
+     * the default options overridden by the context selector and the
+     * given options of the form key1:value1;key2:value2.
+     */
+    private static Object[] makeOptions(String selector, String ptaOptions) {
+        Map<String, Object> options = new LinkedHashMap<>(DEFAULT_OPTIONS);
+        options.put("cs", selector);
+        for (String option : ptaOptions.split(";")) {
+            if (!option.isBlank()) {
+                int colon = option.indexOf(':');
+                if (colon < 0) {
+                    throw new IllegalArgumentException(
+                            "Illegal PTA option: " + option);
+                }
+                options.put(option.substring(0, colon).trim(),
+                        parseValue(option.substring(colon + 1).trim()));
+            }
+        }
+        List<Object> keyValues = new ArrayList<>();
+        options.forEach((key, value) -> {
+            keyValues.add(key);
+            keyValues.add(value);
+        });
+        return keyValues.toArray();
+    }
+
+    /**
+     * Converts an option value to the type that the analysis reads it as.
+     */
+    private static Object parseValue(String value) {
+        if (value.equals("true") || value.equals("false")) {
+            return Boolean.parseBoolean(value);
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return value;
+        }
+    }
+
+    private static void writeCSV(File file, List<Measurement> results)
+            throws FileNotFoundException {
+        try (PrintStream out = new PrintStream(file)) {
+            out.println(String.join(",", Measurement.COLUMNS));
+            for (Measurement m : results) {
+                out.println(m.values().stream()
+                        .map(String::valueOf)
+                        .collect(Collectors.joining(",")));
+            }
+        }
+    }
+
+    private static void writeJSON(File file, List<Measurement> results)
+            throws FileNotFoundException {
+        try (PrintStream out = new PrintStream(file)) {
+            out.println("[");
+            for (int i = 0; i < results.size(); ++i) {
+                List<Object> values = results.get(i).values();
+                List<String> fields = new ArrayList<>();
+                for (int j = 0; j < values.size(); ++j) {
+                    Object v = values.get(j);
+                    fields.add("\"" + Measurement.COLUMNS.get(j) + "\": " +
+                            (v instanceof String s ? quote(s) : v));
+                }
+                out.printf("  {%s}%s%n", String.join(", ", fields),
+                        i + 1 < results.size() ? "," : "");
+            }
+            out.println("]");
+        }
+    }
+
+    private static String quote(String s) {
+        return "\"" + s.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    /**
+     * A benchmark program.
+     *
+     * @param size the size of a synthetic program, or -1 for a given program
+     */
+    private record Program(String name, String classPath, String mainClass, int size) {
+    }
+
+    /**
+     * Result of a measured run.
+     */
+    private record Measurement(String program, int size, String selector,
+                               int repetition, long timeMs, long peakMemory,
+                               long reachableMethods, long csMethods, long contexts,
+                               long callEdges, long csCallEdges,
+                               long polyCallSites, double avgPointsToSetSize) {
+
+        private static final List<String> COLUMNS = List.of(
+                "program", "size", "selector", "repetition", "timeMs",
+                "peakMemory", "reachableMethods", "csMethods", "contexts",
+                "callEdges", "csCallEdges", "polyCallSites", "avgPointsToSetSize");
+
+        private List<Object> values() {
+            return List.of(program, size, selector, repetition, timeMs,
+                    peakMemory, reachableMethods, csMethods, contexts,
+                    callEdges, csCallEdges, polyCallSites, avgPointsToSetSize);
+        }
+    }
+}
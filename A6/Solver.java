@@ -38,42 +38,119 @@ import pascal.taie.analysis.pta.core.cs.element.CSManager;
 import pascal.taie.analysis.pta.core.cs.element.CSMethod;
 import pascal.taie.analysis.pta.core.cs.element.CSObj;
 import pascal.taie.analysis.pta.core.cs.element.CSVar;
+import pascal.taie.analysis.pta.core.cs.element.IndexedCSManager;
 import pascal.taie.analysis.pta.core.cs.element.InstanceField;
 import pascal.taie.analysis.pta.core.cs.element.MapBasedCSManager;
 import pascal.taie.analysis.pta.core.cs.element.Pointer;
 import pascal.taie.analysis.pta.core.cs.element.StaticField;
+import pascal.taie.analysis.pta.core.cs.selector.ContextInsensitiveSelector;
 import pascal.taie.analysis.pta.core.cs.selector.ContextSelector;
+import pascal.taie.analysis.pta.core.cs.selector.SelectiveSelector;
+import pascal.taie.analysis.pta.core.cs.selector._1CallSelector;
+import pascal.taie.analysis.pta.core.cs.selector._1ObjSelector;
+import pascal.taie.analysis.pta.core.cs.selector._1TypeSelector;
+import pascal.taie.analysis.pta.core.cs.selector._2CallSelector;
+import pascal.taie.analysis.pta.core.cs.selector._2ObjSelector;
+import pascal.taie.analysis.pta.core.cs.selector._2TypeSelector;
 import pascal.taie.analysis.pta.core.heap.HeapModel;
 import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.analysis.pta.core.solver.CycleEliminator;
+import pascal.taie.analysis.pta.core.solver.SubtypeOracle;
+import pascal.taie.analysis.pta.core.solver.Telemetry;
+import pascal.taie.analysis.pta.pts.MapBasedIndexer;
 import pascal.taie.analysis.pta.pts.PointsToSet;
 import pascal.taie.analysis.pta.pts.PointsToSetFactory;
+import pascal.taie.analysis.pta.pts.PointsToSetPool;
+import pascal.taie.config.AnalysisConfig;
 import pascal.taie.config.AnalysisOptions;
 import pascal.taie.ir.exp.InvokeExp;
 import pascal.taie.ir.exp.Var;
-import pascal.taie.ir.stmt.Copy;
 import pascal.taie.ir.stmt.Invoke;
 import pascal.taie.ir.stmt.LoadArray;
-import pascal.taie.ir.stmt.LoadField;
-import pascal.taie.ir.stmt.New;
 import pascal.taie.ir.stmt.StmtVisitor;
 import pascal.taie.ir.stmt.StoreArray;
-import pascal.taie.ir.stmt.StoreField;
 import pascal.taie.language.classes.JField;
 import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.type.ArrayType;
+import pascal.taie.language.type.PrimitiveType;
 import pascal.taie.language.type.Type;
+import pascal.taie.util.collection.Maps;
 
 import java.awt.*;
 import java.security.cert.PolicyNode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 class Solver {
 
     private static final Logger logger = LogManager.getLogger(Solver.class);
 
+    /**
+     * ID and options of the context-insensitive pre-analysis of
+     * selective context sensitivity.
+     */
+    private static final String PRE_ANALYSIS_ID = "cspta-pre";
+
+    private static final List<String> PRE_ANALYSIS_OPTIONS =
+            List.of("wave", "type-filter", "indexed-cs-manager");
+
     private final AnalysisOptions options;
 
     private final HeapModel heapModel;
 
-    private final ContextSelector contextSelector;
+    private ContextSelector contextSelector;
+
+    /**
+     * Whether to apply context sensitivity only to the precision-critical
+     * methods found by a context-insensitive pre-analysis.
+     */
+    private boolean selective;
+
+    /**
+     * Whether to solve by wave propagation instead of the work list.
+     */
+    private final boolean wave;
+
+    /**
+     * Whether to filter propagated objects by the declared types of
+     * pointers, and to skip the PFG edges of primitive pointers.
+     */
+    private final boolean typeFilter;
+
+    private SubtypeOracle subtypes;
+
+    /**
+     * Number of objects rejected by type filtering.
+     */
+    private long nFiltered;
+
+    /**
+     * Whether equal points-to sets share their payloads.
+     */
+    private final boolean sharePointsToSets;
+
+    /**
+     * Telemetry of the analysis, or null if it is disabled.
+     */
+    private final Telemetry telemetry;
+
+    /**
+     * Whether this solver solves a stage of budgeted solving, whose
+     * telemetry is reported by the parent solver.
+     */
+    private final boolean stage;
+
+    /**
+     * Budget of the analysis, or null if it is unlimited.
+     */
+    private final AnalysisBudget budget;
+
+    /**
+     * Whether to solve in stages of increasing precision within the budget.
+     */
+    private final boolean budgeted;
 
     private CSManager csManager;
 
@@ -81,8 +158,17 @@ class Solver {
 
     private PointerFlowGraph pointerFlowGraph;
 
+    /**
+     * Factory of the points-to sets of this run.
+     */
+    private PointsToSetFactory ptsFactory;
+
     private WorkList workList;
 
+    private final Map<JMethod, ConstraintTemplate> templates = Maps.newMap();
+
+    private CycleEliminator<Pointer> cycles;
+
     private PointerAnalysisResult result;
 
     Solver(AnalysisOptions options, HeapModel heapModel,
@@ -90,18 +176,309 @@ class Solver {
         this.options = options;
         this.heapModel = heapModel;
         this.contextSelector = contextSelector;
+        this.wave = options.has("wave") && options.getBoolean("wave");
+        this.selective = options.has("selective") && options.getBoolean("selective");
+        this.typeFilter = options.has("type-filter") && options.getBoolean("type-filter");
+        this.sharePointsToSets = options.has("share-pts") && options.getBoolean("share-pts");
+        this.telemetry = Telemetry.of(options);
+        this.stage = false;
+        this.budget = AnalysisBudget.of(options);
+        this.budgeted = budget != null;
+    }
+
+    /**
+     * Creates the solver of a stage of budgeted solving, which has
+     * the same configuration as parent except the context selector.
+     */
+    private Solver(Solver parent, ContextSelector contextSelector,
+                   AnalysisBudget budget) {
+        this.options = parent.options;
+        this.heapModel = parent.heapModel;
+        this.contextSelector = contextSelector;
+        this.wave = parent.wave;
+        this.typeFilter = parent.typeFilter;
+        this.sharePointsToSets = parent.sharePointsToSets;
+        this.telemetry = parent.telemetry;
+        this.stage = true;
+        this.selective = false;
+        this.budget = budget;
+        this.budgeted = false;
     }
 
     void solve() {
+        if (budgeted) {
+            solveWithinBudget();
+            if (telemetry != null) {
+                reportTelemetry();
+            }
+            return;
+        }
+        if (selective) {
+            contextSelector = makeSelectiveSelector();
+        }
+        long start = System.currentTimeMillis();
         initialize();
-        analyze();
+        if (wave) {
+            analyzeWaves();
+        } else {
+            analyze();
+        }
+        // merged pointers share the points-to sets of their representatives
+        cycles.forEachMerged((pointer, rep) -> ptsFactory.addAllDiff(
+                pointer.getPointsToSet(), rep.getPointsToSet()));
+        logger.info("Cycle elimination merged {} pointers", cycles.getNumberOfMerged());
+        if (typeFilter) {
+            logger.info("Type filtering rejected {} objects", nFiltered);
+        }
+        logger.info("Work list entries: {} added, {} propagated after coalescing",
+                workList.getNumberOfAddedEntries(),
+                workList.getNumberOfPolledEntries());
+        if (sharePointsToSets) {
+            internPointsToSets();
+        }
+        logger.info("Solved in {}ms: {} context-sensitive methods, {} contexts",
+                System.currentTimeMillis() - start,
+                callGraph.reachableMethods().count(),
+                callGraph.reachableMethods().map(CSMethod::getContext).distinct().count());
+        if (telemetry != null && !stage) {
+            reportTelemetry();
+        }
+    }
+
+    /**
+     * Runs a context-insensitive pre-analysis, and restricts the context
+     * selector to the precision-critical methods found by it.
+     */
+    private ContextSelector makeSelectiveSelector() {
+        long start = System.currentTimeMillis();
+        Solver preSolver = new Solver(makePreAnalysisOptions(),
+                heapModel, new ContextInsensitiveSelector());
+        preSolver.solve();
+        PointerAnalysisResult ciResult = preSolver.getResult();
+        Set<JMethod> criticalMethods = PrecisionCriticalMethods.find(ciResult);
+        logger.info("Selective context sensitivity: {} of {} methods are critical, " +
+                        "pre-analysis took {}ms", criticalMethods.size(),
+                ciResult.getCallGraph().reachableMethods().count(),
+                System.currentTimeMillis() - start);
+        return new SelectiveSelector(contextSelector, criticalMethods);
+    }
+
+    /**
+     * @return the options of the context-insensitive pre-analysis, which
+     * keep only the options that affect how the solver propagates, so that
+     * the pre-analysis runs without telemetry, budget, payload sharing,
+     * or another pre-analysis.
+     */
+    private AnalysisOptions makePreAnalysisOptions() {
+        List<Object> keyValues = new ArrayList<>();
+        for (String key : PRE_ANALYSIS_OPTIONS) {
+            if (options.has(key)) {
+                keyValues.add(key);
+                keyValues.add(options.get(key));
+            }
+        }
+        return new AnalysisConfig(PRE_ANALYSIS_ID, keyValues.toArray()).getOptions();
+    }
+
+    /**
+     * Solves in stages of increasing precision, i.e., context-insensitive,
+     * selective with the 1-level variant of the context selector,
+     * selective with the context selector, and finally uniform with
+     * the context selector. The precision-critical methods of each
+     * selective stage are found by the result of the previous stage.
+     * <p>
+     * The context-insensitive stage always runs to completion, and each
+     * later stage is abandoned once the budget runs out, in which case
+     * the result of the last completed stage is kept. Every stage result
+     * is sound, so the kept one is the most precise sound result found
+     * within the budget.
+     */
+    private void solveWithinBudget() {
+        budget.start();
+        List<Stage> stages = new ArrayList<>();
+        ContextSelector shallow = getOneLevelSelector(contextSelector);
+        if (shallow != null) {
+            stages.add(new Stage(shallow, true));
+        }
+        if (!(contextSelector instanceof ContextInsensitiveSelector)) {
+            stages.add(new Stage(contextSelector, true));
+            stages.add(new Stage(contextSelector, false));
+        }
+        if (telemetry != null) {
+            telemetry.startStage();
+        }
+        Solver best = new Solver(this, new ContextInsensitiveSelector(), null);
+        best.solve();
+        if (telemetry != null) {
+            telemetry.commitStage();
+        }
+        logger.info("Budgeted solving: context-insensitive stage finished, {}ms left",
+                budget.getRemainingTime());
+        for (Stage stage : stages) {
+            if (budget.getRemainingTime() == 0) {
+                break;
+            }
+            // a new selector interns the contexts of this stage only
+            ContextSelector selector = newSelector(stage.selector());
+            if (stage.selective()) {
+                // refine the methods that are imprecise in the best result
+                selector = new SelectiveSelector(selector,
+                        PrecisionCriticalMethods.find(best.getResult()));
+            }
+            Solver next = new Solver(this, selector, budget);
+            if (telemetry != null) {
+                telemetry.startStage();
+            }
+            budget.startStage();
+            try {
+                next.solve();
+            } catch (AnalysisBudget.ExceededException e) {
+                logger.info("Budgeted solving: stage {} abandoned as the budget " +
+                        "runs out", stage);
+                next.release();
+                if (telemetry != null) {
+                    telemetry.abandonStage();
+                }
+                break;
+            }
+            if (telemetry != null) {
+                telemetry.commitStage();
+            }
+            best = next;
+            logger.info("Budgeted solving: stage {} finished, {}ms left",
+                    stage, budget.getRemainingTime());
+        }
+        csManager = best.csManager;
+        callGraph = best.callGraph;
+        pointerFlowGraph = best.pointerFlowGraph;
+        cycles = best.cycles;
+        workList = best.workList;
+        result = best.getResult();
+    }
+
+    /**
+     * Drops the state of this solver, so that the memory of an abandoned
+     * stage is reclaimed even while the solver itself is referenced.
+     */
+    private void release() {
+        contextSelector = null;
+        csManager = null;
+        callGraph = null;
+        pointerFlowGraph = null;
+        ptsFactory = null;
+        workList = null;
+        templates.clear();
+        cycles = null;
+        subtypes = null;
+        result = null;
+    }
+
+    /**
+     * @return a new context selector of the same kind as given one,
+     * or the given one if its kind is unknown.
+     */
+    private static ContextSelector newSelector(ContextSelector selector) {
+        if (selector instanceof _1CallSelector) {
+            return new _1CallSelector();
+        } else if (selector instanceof _2CallSelector) {
+            return new _2CallSelector();
+        } else if (selector instanceof _1ObjSelector) {
+            return new _1ObjSelector();
+        } else if (selector instanceof _2ObjSelector) {
+            return new _2ObjSelector();
+        } else if (selector instanceof _1TypeSelector) {
+            return new _1TypeSelector();
+        } else if (selector instanceof _2TypeSelector) {
+            return new _2TypeSelector();
+        }
+        return selector;
+    }
+
+    /**
+     * @return the 1-level variant of given 2-level context selector,
+     * or null if it is not a 2-level selector.
+     */
+    private static ContextSelector getOneLevelSelector(ContextSelector selector) {
+        if (selector instanceof _2CallSelector) {
+            return new _1CallSelector();
+        } else if (selector instanceof _2ObjSelector) {
+            return new _1ObjSelector();
+        } else if (selector instanceof _2TypeSelector) {
+            return new _1TypeSelector();
+        }
+        return null;
+    }
+
+    /**
+     * A stage of budgeted solving.
+     *
+     * @param selector  the context selector of the stage
+     * @param selective whether the selector only applies to the
+     *                  precision-critical methods
+     */
+    private record Stage(ContextSelector selector, boolean selective) {
+
+        @Override
+        public String toString() {
+            return (selective ? "selective " : "") +
+                    selector.getClass().getSimpleName();
+        }
+    }
+
+    /**
+     * Makes the equal points-to sets of all pointers share one payload,
+     * and reports the deduplication ratio.
+     */
+    private void internPointsToSets() {
+        PointsToSetPool pool = new PointsToSetPool();
+        csManager.getCSVars().forEach(p -> pool.intern(p.getPointsToSet()));
+        csManager.getStaticFields().forEach(p -> pool.intern(p.getPointsToSet()));
+        csManager.getInstanceFields().forEach(p -> pool.intern(p.getPointsToSet()));
+        csManager.getArrayIndexes().forEach(p -> pool.intern(p.getPointsToSet()));
+        logger.info("Points-to set sharing: {} non-empty sets, {} payloads " +
+                        "after solving, {} after interning (dedup ratio {})",
+                pool.getNumberOfSets(), pool.getNumberOfOriginalPayloads(),
+                pool.getNumberOfPayloads(),
+                String.format("%.2f", pool.getDedupRatio()));
+    }
+
+    private void recordPropagation(Pointer pointer, PointsToSet delta) {
+        telemetry.onPropagate(pointer, pointer instanceof CSVar csVar ?
+                csVar.getVar().getMethod() : null, delta.size());
+        telemetry.onStep(workList::size, () -> callGraph.reachableMethods().count());
+    }
+
+    private void reportTelemetry() {
+        callGraph.reachableMethods().forEach(csMethod ->
+                telemetry.onReachableMethod(csMethod.getMethod()));
+        callGraph.edges().forEach(edge ->
+                telemetry.onCallEdge(edge.getCallSite().getCallSite()));
+        telemetry.writeReport(p -> ((Pointer) p).getPointsToSet().size());
+    }
+
+    private void checkBudget() {
+        if (budget != null) {
+            budget.check();
+        }
     }
 
     private void initialize() {
-        csManager = new MapBasedCSManager();
+        // number the objects of this run only, by the IDs of
+        // IndexedCSManager if it is used
+        if (options.has("indexed-cs-manager")
+                && options.getBoolean("indexed-cs-manager")) {
+            IndexedCSManager indexedCSManager = new IndexedCSManager();
+            ptsFactory = new PointsToSetFactory(indexedCSManager, sharePointsToSets);
+            csManager = indexedCSManager;
+        } else {
+            ptsFactory = new PointsToSetFactory(new MapBasedIndexer<>(), sharePointsToSets);
+            csManager = new MapBasedCSManager();
+        }
         callGraph = new CSCallGraph(csManager);
         pointerFlowGraph = new PointerFlowGraph();
-        workList = new WorkList();
+        cycles = new CycleEliminator<>();
+        workList = new WorkList(ptsFactory);
+        subtypes = typeFilter ? new SubtypeOracle() : null;
         // process program entry, i.e., main method
         Context defContext = contextSelector.getEmptyContext();
         JMethod main = World.get().getMainMethod();
@@ -117,15 +494,52 @@ class Solver {
         // TODO - finish me
         if(!callGraph.contains(csMethod)){
             callGraph.addReachableMethod(csMethod);
-            csMethod.getMethod().getIR().getStmts().forEach(stmt->{
-                stmt.accept(new StmtProcessor(csMethod));
-                }
-            );
+            instantiate(csMethod);
+        }
+    }
+
+    /**
+     * Instantiates the constraint template of the method in the context
+     * of csMethod. The template is compiled when the method is first
+     * reached, and reused for its other contexts.
+     */
+    private void instantiate(CSMethod csMethod) {
+        ConstraintTemplate template = templates.computeIfAbsent(
+                csMethod.getMethod(), ConstraintTemplate::compile);
+        Context context = csMethod.getContext();
+        CSVar[] csVars = new CSVar[template.vars.length];
+        for(int i = 0; i < csVars.length; ++i){
+            csVars[i] = csManager.getCSVar(context, template.vars[i]);
+        }
+        for(int i = 0; i < template.allocs.length; ++i){
+            Obj obj = heapModel.getObj(template.allocs[i]);
+            Context heapContext = contextSelector.selectHeapContext(csMethod, obj);
+            workList.addEntry(csVars[template.allocSlots[i]],
+                    ptsFactory.newPointsToSet(csManager.getCSObj(heapContext, obj)));
+        }
+        for(int i = 0; i < template.copySources.length; ++i){
+            addPFGEdge(csVars[template.copySources[i]], csVars[template.copyTargets[i]]);
+        }
+        for(int i = 0; i < template.staticStoreFields.length; ++i){
+            // T.f = y
+            addPFGEdge(csVars[template.staticStoreSlots[i]],
+                    csManager.getStaticField(template.staticStoreFields[i]));
+        }
+        for(int i = 0; i < template.staticLoadFields.length; ++i){
+            // y = T.f
+            addPFGEdge(csManager.getStaticField(template.staticLoadFields[i]),
+                    csVars[template.staticLoadSlots[i]]);
+        }
+        if(template.staticInvokes.length > 0){
+            StmtProcessor stmtProcessor = new StmtProcessor(csMethod);
+            for(Invoke invoke: template.staticInvokes){
+                stmtProcessor.visit(invoke);
+            }
         }
     }
 
     /**
-     * Processes the statements in context-sensitive new reachable methods.
+     * Processes the static invocations in context-sensitive new reachable methods.
      */
     private class StmtProcessor implements StmtVisitor<Void> {
 
@@ -140,44 +554,8 @@ class Solver {
 
         // TODO - if you choose to implement addReachable()
         //  via visitor pattern, then finish me
-
+        // other statements are compiled into ConstraintTemplates
         @Override
-        public Void visit(New stmt){
-            Pointer pointer = csManager.getCSVar(this.context, stmt.getLValue());
-            Obj obj = heapModel.getObj(stmt);
-            Context heapContext = contextSelector.selectHeapContext(csMethod, obj);
-            PointsToSet pointsToSet = PointsToSetFactory.make(csManager.getCSObj(heapContext, obj));
-            workList.addEntry(pointer, pointsToSet);
-            return null;
-        }
-
-        public Void visit(Copy stmt){
-            Pointer src = csManager.getCSVar(context, stmt.getRValue());
-            Pointer dst = csManager.getCSVar(context, stmt.getLValue());
-            addPFGEdge(src, dst);
-            return null;
-        }
-
-        public Void visit(StoreField stmt){
-            // T.f = y
-            // y -> T.f
-            if(stmt.isStatic()){
-                Pointer src = csManager.getCSVar(context, stmt.getRValue());
-                Pointer dst = csManager.getStaticField(stmt.getFieldRef().resolve());
-                addPFGEdge(src, dst);
-            }
-            return null;
-        }
-
-        public Void visit(LoadField stmt){
-            if(stmt.isStatic()){
-                Pointer src = csManager.getStaticField(stmt.getFieldRef().resolve());
-                Pointer dst = csManager.getCSVar(context, stmt.getLValue());
-                addPFGEdge(src, dst);
-            }
-            return null;
-        }
-
         public Void visit(Invoke stmt){
             if(stmt.isStatic()){
                 JMethod callee = resolveCallee(null, stmt);
@@ -211,10 +589,16 @@ class Solver {
      */
     private void addPFGEdge(Pointer source, Pointer target) {
         // TODO - finish me
+        if(typeFilter && getDeclaredType(target) instanceof PrimitiveType){
+            // primitive pointers never hold objects
+            return;
+        }
         if(pointerFlowGraph.addEdge(source, target)){
             // PFG changed
-            if(!source.getPointsToSet().isEmpty()){
-                workList.addEntry(target, source.getPointsToSet());
+            cycles.addEdge(source, target);
+            PointsToSet sourcePts = cycles.find(source).getPointsToSet();
+            if(!sourcePts.isEmpty()){
+                workList.addEntry(target, sourcePts);
             }
         }
     }
@@ -225,41 +609,202 @@ class Solver {
     private void analyze() {
         // TODO - finish me
         while(!workList.isEmpty()){
+            checkBudget();
             WorkList.Entry entry = workList.pollEntry();
-            Pointer ptr = entry.pointer();
+            // merged pointers are propagated via their representatives
+            Pointer ptr = cycles.find(entry.pointer());
             PointsToSet pts = entry.pointsToSet();
             PointsToSet delta = propagate(ptr, pts);
 
-            if(ptr instanceof CSVar csVar){
-                Var var = csVar.getVar();
-                Context context = csVar.getContext();
-
-                for(CSObj o: delta){
-                    var.getStoreFields().forEach(stmt -> {
-                        // x.f = y
-                        JField field = stmt.getFieldRef().resolve();
-                        addPFGEdge(csManager.getCSVar(context, stmt.getRValue()),
-                                csManager.getInstanceField(o, field));
-                    });
-                    var.getLoadFields().forEach(stmt -> {
-                        // y = x.f
-                        JField field = stmt.getFieldRef().resolve();
-                        addPFGEdge(csManager.getInstanceField(o, field),
-                                csManager.getCSVar(context, stmt.getLValue()));
-                    });
-                    var.getStoreArrays().forEach(stmt -> {
-                        // x[*] = y
-                        addPFGEdge(csManager.getCSVar(context, stmt.getRValue()),
-                                csManager.getArrayIndex(o));
-                    });
-                    var.getLoadArrays().forEach(stmt -> {
-                        // y = x[*]
-                        addPFGEdge(csManager.getArrayIndex(o),
-                                csManager.getCSVar(context, stmt.getLValue()));
-                    });
-                    processCall(csVar, o);
+            if(!delta.isEmpty()){
+                for(Pointer member: cycles.getMembersOf(ptr)){
+                    if(member instanceof CSVar csVar){
+                        processVar(csVar, delta);
+                    }
+                }
+                collapseCycle(ptr);
+            }
+        }
+    }
+
+    /**
+     * Solves by wave propagation, which repeats the following phases
+     * until the work list is empty:
+     * <ol>
+     *     <li>collapses the SCCs of the PFG;</li>
+     *     <li>propagates the pending points-to sets along the PFG in
+     *     topological order, so each node is propagated once;</li>
+     *     <li>adds the new PFG edges and entries from the field/array
+     *     accesses and calls on the variables whose points-to sets
+     *     changed in this wave.</li>
+     * </ol>
+     */
+    private void analyzeWaves() {
+        int nWaves = 0;
+        while(!workList.isEmpty()){
+            ++nWaves;
+            // phase 1: collapse SCCs, and order nodes topologically
+            List<List<Pointer>> sccs = cycles.computeSCCs();
+            List<Pointer> order = new ArrayList<>(sccs.size());
+            for(int i = sccs.size() - 1; i >= 0; --i){
+                List<Pointer> scc = sccs.get(i);
+                if(scc.size() > 1){
+                    collapse(scc);
+                }
+                order.add(cycles.find(scc.get(0)));
+            }
+            // phase 2: propagate in topological order
+            Map<Pointer, PointsToSet> deltas = Maps.newMap();
+            for(Pointer node: order){
+                checkBudget();
+                PointsToSet pending = workList.remove(node);
+                if(pending != null){
+                    propagateWave(node, pending, deltas);
+                }
+            }
+            // entries of nodes outside the ordered PFG, or added by phase 1
+            while(!workList.isEmpty()){
+                checkBudget();
+                WorkList.Entry entry = workList.pollEntry();
+                propagateWave(cycles.find(entry.pointer()), entry.pointsToSet(), deltas);
+            }
+            // phase 3: add new edges and entries from the changed variables
+            deltas.forEach((pointer, delta) -> {
+                for(Pointer member: cycles.getMembersOf(pointer)){
+                    if(member instanceof CSVar csVar){
+                        processVar(csVar, delta);
+                    }
+                }
+            });
+        }
+        logger.info("Wave propagation finished in {} waves", nWaves);
+    }
+
+    private void propagateWave(Pointer pointer, PointsToSet pointsToSet,
+                               Map<Pointer, PointsToSet> deltas) {
+        PointsToSet delta = propagate(pointer, pointsToSet);
+        if(!delta.isEmpty()){
+            deltas.merge(pointer, delta, (d1, d2) -> {
+                // deltas may be shared with work-list entries
+                PointsToSet union = ptsFactory.newPointsToSet();
+                ptsFactory.addAllDiff(union, d1);
+                ptsFactory.addAllDiff(union, d2);
+                return union;
+            });
+        }
+    }
+
+    /**
+     * Processes the field/array accesses and calls on csVar
+     * for the new objects in delta.
+     */
+    private void processVar(CSVar csVar, PointsToSet delta) {
+        Var var = csVar.getVar();
+        Context context = csVar.getContext();
+
+        for(CSObj o: delta){
+            var.getStoreFields().forEach(stmt -> {
+                // x.f = y
+                JField field = stmt.getFieldRef().resolve();
+                addPFGEdge(csManager.getCSVar(context, stmt.getRValue()),
+                        csManager.getInstanceField(o, field));
+            });
+            var.getLoadFields().forEach(stmt -> {
+                // y = x.f
+                JField field = stmt.getFieldRef().resolve();
+                addPFGEdge(csManager.getInstanceField(o, field),
+                        csManager.getCSVar(context, stmt.getLValue()));
+            });
+            var.getStoreArrays().forEach(stmt -> {
+                // x[*] = y
+                addPFGEdge(csManager.getCSVar(context, stmt.getRValue()),
+                        csManager.getArrayIndex(o));
+            });
+            var.getLoadArrays().forEach(stmt -> {
+                // y = x[*]
+                addPFGEdge(csManager.getArrayIndex(o),
+                        csManager.getCSVar(context, stmt.getLValue()));
+            });
+            processCall(csVar, o);
+        }
+    }
+
+    /**
+     * Lazy cycle detection: if a successor of pointer already has the same
+     * points-to set, propagation along the edge is useless, and the edge
+     * is likely on a cycle. Each such edge is checked once, and the cycle
+     * through it, if any, is collapsed.
+     */
+    private void collapseCycle(Pointer pointer) {
+        PointsToSet pts = pointer.getPointsToSet();
+        for(Pointer succ: cycles.getSuccsOf(pointer)){
+            PointsToSet succPts = succ.getPointsToSet();
+            // compare the contents only for equal sizes and unchecked edges
+            if(succPts.size() == pts.size()
+                    && !cycles.isChecked(pointer, succ)
+                    && pts.objects().allMatch(succPts::contains)
+                    && cycles.markChecked(pointer, succ)){
+                List<Pointer> cycle = cycles.findCycle(pointer, succ);
+                if(!cycle.isEmpty()){
+                    collapse(cycle);
+                    return;
                 }
+            }
+        }
+    }
 
+    /**
+     * Merges the pointers on a cycle into the one with the largest
+     * points-to set, and processes the objects that are new to each
+     * of the merged pointers.
+     */
+    private void collapse(List<Pointer> cycle) {
+        if(typeFilter && !haveSameType(cycle)){
+            // merging would apply one filter to pointers of different types
+            return;
+        }
+        Pointer rep = cycle.get(0);
+        for(Pointer p: cycle){
+            if(p.getPointsToSet().size() > rep.getPointsToSet().size()){
+                rep = p;
+            }
+        }
+        PointsToSet union = rep.getPointsToSet();
+        Map<Pointer, PointsToSet> diffs = Maps.newMap();
+        PointsToSet repDiff = ptsFactory.newPointsToSet();
+        for(Pointer p: cycle){
+            if(p != rep){
+                ptsFactory.addAllDiff(repDiff,
+                        ptsFactory.addAllDiff(union, p.getPointsToSet()));
+            }
+        }
+        diffs.put(rep, repDiff);
+        for(Pointer p: cycle){
+            if(p != rep){
+                PointsToSet copy = ptsFactory.newPointsToSet();
+                ptsFactory.addAllDiff(copy, p.getPointsToSet());
+                diffs.put(p, ptsFactory.addAllDiff(copy, union));
+            }
+        }
+        Map<Pointer, List<Pointer>> membersOf = Maps.newMap();
+        cycle.forEach(p -> membersOf.put(p, cycles.getMembersOf(p)));
+        cycles.merge(cycle, rep);
+
+        boolean changed = false;
+        for(Pointer p: cycle){
+            PointsToSet diff = diffs.get(p);
+            if(!diff.isEmpty()){
+                changed = true;
+                for(Pointer member: membersOf.get(p)){
+                    if(member instanceof CSVar csVar){
+                        processVar(csVar, diff);
+                    }
+                }
+            }
+        }
+        if(changed){
+            for(Pointer succ: cycles.getSuccsOf(rep)){
+                workList.addEntry(succ, union);
             }
         }
     }
@@ -270,22 +815,83 @@ class Solver {
      */
     private PointsToSet propagate(Pointer pointer, PointsToSet pointsToSet) {
         // TODO - finish me
-        PointsToSet delta = PointsToSetFactory.make();
-
-        for(CSObj o: pointsToSet){
-            if(pointer.getPointsToSet().addObject(o)){
-                delta.addObject(o);
-            }
+        if(typeFilter){
+            pointsToSet = filterByType(pointer, pointsToSet);
+        }
+        PointsToSet delta = ptsFactory.addAllDiff(
+                pointer.getPointsToSet(), pointsToSet);
+        if(telemetry != null){
+            recordPropagation(pointer, delta);
         }
         // check if delta is empty now
         if(!delta.isEmpty()){
-            pointerFlowGraph.getSuccsOf(pointer).forEach(ptr -> {
+            cycles.getSuccsOf(pointer).forEach(ptr -> {
                 workList.addEntry(ptr, delta);
             });
         }
         return delta;
     }
 
+    /**
+     * @return the objects in pointsToSet whose types are subtypes of
+     * the declared type of pointer. Returns pointsToSet itself if
+     * no object is rejected.
+     */
+    private PointsToSet filterByType(Pointer pointer, PointsToSet pointsToSet) {
+        Type type = getDeclaredType(pointer);
+        if(type == null){
+            return pointsToSet;
+        }
+        boolean rejected = false;
+        for(CSObj obj: pointsToSet){
+            if(!subtypes.isSubtype(type, obj.getObject().getType())){
+                rejected = true;
+                break;
+            }
+        }
+        if(!rejected){
+            return pointsToSet;
+        }
+        PointsToSet filtered = ptsFactory.newPointsToSet();
+        for(CSObj obj: pointsToSet){
+            if(subtypes.isSubtype(type, obj.getObject().getType())){
+                filtered.addObject(obj);
+            } else {
+                ++nFiltered;
+            }
+        }
+        return filtered;
+    }
+
+    /**
+     * @return the declared type of the values held by pointer,
+     * or null if it is unknown.
+     */
+    private static Type getDeclaredType(Pointer pointer) {
+        if(pointer instanceof CSVar csVar){
+            return csVar.getVar().getType();
+        } else if(pointer instanceof InstanceField instanceField){
+            return instanceField.getField().getType();
+        } else if(pointer instanceof StaticField staticField){
+            return staticField.getField().getType();
+        } else if(pointer instanceof ArrayIndex arrayIndex
+                && arrayIndex.getArray().getObject().getType() instanceof ArrayType arrayType){
+            return arrayType.elementType();
+        }
+        return null;
+    }
+
+    private static boolean haveSameType(List<Pointer> pointers) {
+        Type type = getDeclaredType(pointers.get(0));
+        for(Pointer p: pointers){
+            Type t = getDeclaredType(p);
+            if(t == null || !t.equals(type)){
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Processes instance calls when points-to set of the receiver variable changes.
      *
@@ -303,7 +909,7 @@ class Solver {
             Context calleeContext = contextSelector.selectContext(csCallSite, recvObj, callee);
             // add this to WL
             workList.addEntry(csManager.getCSVar(calleeContext, callee.getIR().getThis()),
-                    PointsToSetFactory.make(recvObj));
+                    ptsFactory.newPointsToSet(recvObj));
             // if not in call-graph
             CSMethod csMethod = csManager.getCSMethod(calleeContext, callee);
             if(callGraph.addEdge(new Edge<>(CallGraphs.getCallKind(invoke),
@@ -0,0 +1,117 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.bench;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+
+/**
+ * Generates synthetic Java programs whose size is controlled by
+ * a parameter, for measuring the scalability of pointer analysis.
+ * <p>
+ * A program of size n consists of n classes implementing an interface,
+ * each of which allocates objects, stores them into a generic container,
+ * and passes them through identity and factory methods. The main method
+ * calls each class from two call sites, and dispatches on the interface
+ * through a shared container, so that context-insensitive analysis
+ * merges the flows of different call sites and receivers, while
+ * context-sensitive analysis can separate them. The generated code only
+ * uses Java 7 features, so that it can be analyzed from source.
+ */
+public final class SyntheticProgramGenerator {
+
+    public static final String MAIN_CLASS = "Main";
+
+    private SyntheticProgramGenerator() {
+    }
+
+    /**
+     * Writes the program of given size into dir/Main.java.
+     *
+     * @return the directory that contains the program.
+     */
+    public static File generate(File dir, int size) throws FileNotFoundException {
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new FileNotFoundException("Failed to create " + dir);
+        }
+        try (PrintStream out = new PrintStream(new File(dir, MAIN_CLASS + ".java"))) {
+            writeLibrary(out);
+            for (int i = 0; i < size; ++i) {
+                writeWorker(out, i);
+            }
+            writeMain(out, size);
+        }
+        return dir;
+    }
+
+    private static void writeLibrary(PrintStream out) {
+        out.println("interface Worker {");
+        out.println("    Object work(Object in);");
+        out.println("}");
+        out.println();
+        out.println("class Box {");
+        out.println("    private Object value;");
+        out.println("    void set(Object value) { this.value = value; }");
+        out.println("    Object get() { return value; }");
+        out.println("}");
+        out.println();
+        out.println("class Util {");
+        out.println("    static Object id(Object o) { return o; }");
+        out.println("    static Box wrap(Object o) { Box b = new Box(); b.set(o); return b; }");
+        out.println("}");
+        out.println();
+    }
+
+    private static void writeWorker(PrintStream out, int i) {
+        out.printf("class Worker%d implements Worker {%n", i);
+        out.println("    private Box box = new Box();");
+        out.println("    public Object work(Object in) {");
+        out.println("        box.set(Util.id(in));");
+        out.println("        Box copy = Util.wrap(box.get());");
+        out.println("        return copy.get();");
+        out.println("    }");
+        out.printf("    Object make() { return new Item%d(); }%n", i);
+        out.println("}");
+        out.println();
+        out.printf("class Item%d {%n", i);
+        out.println("}");
+        out.println();
+    }
+
+    private static void writeMain(PrintStream out, int size) {
+        out.printf("public class %s {%n", MAIN_CLASS);
+        out.println("    public static void main(String[] args) {");
+        out.println("        Box workers = new Box();");
+        for (int i = 0; i < size; ++i) {
+            out.printf("        Worker%d w%d = new Worker%d();%n", i, i, i);
+            out.printf("        Object a%d = w%d.work(w%d.make());%n", i, i, i);
+            out.printf("        Object b%d = w%d.work(new Object());%n", i, i);
+            out.printf("        workers.set(w%d);%n", i);
+        }
+        out.println("        Worker w = (Worker) workers.get();");
+        out.println("        Object r = w.work(Util.id(new Object()));");
+        out.println("    }");
+        out.println("}");
+    }
+}
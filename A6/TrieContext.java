@@ -0,0 +1,189 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.core.cs.context;
+
+import pascal.taie.util.collection.Maps;
+
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Context represented by a node of a trie, where the children of
+ * a context are the contexts extended by one element.
+ * <p>
+ * Contexts are hash-consed: each sequence of elements is represented by
+ * exactly one node of a trie, so creating a context is a lookup of the
+ * children of its parent, and contexts are compared by identity. Each
+ * context has a dense int ID, which is unique in its trie, i.e., the trie
+ * is its ID space, and is also its hash code. A trie is created by
+ * {@link #newRoot()} and is owned by one context selector, so it lives as
+ * long as the analysis using it, and contexts of different tries must
+ * not be mixed.
+ */
+public final class TrieContext implements IndexedContext {
+
+    /**
+     * The empty context of the trie of this context.
+     */
+    private final TrieContext root;
+
+    private final TrieContext parent;
+
+    private final Object elem;
+
+    private final int length;
+
+    private final int id;
+
+    /**
+     * Number of contexts in the trie, only maintained by the root.
+     */
+    private int nContexts;
+
+    private final Map<Object, TrieContext> children = Maps.newMap();
+
+    /**
+     * Cache of {@link #appendLimited(Object, int)} with k == length,
+     * which drops the first element of this context.
+     */
+    private final Map<Object, TrieContext> shifted = Maps.newMap();
+
+    private TrieContext(TrieContext parent, Object elem) {
+        this.root = parent == null ? this : parent.root;
+        this.parent = parent;
+        this.elem = elem;
+        this.length = parent == null ? 0 : parent.length + 1;
+        this.id = root.nContexts++;
+    }
+
+    /**
+     * @return the empty context of a new trie.
+     */
+    public static TrieContext newRoot() {
+        return new TrieContext(null, null);
+    }
+
+    /**
+     * @return the empty context of the trie of this context.
+     */
+    public TrieContext getRoot() {
+        return root;
+    }
+
+    /**
+     * @return the context that extends this context with elem.
+     */
+    public TrieContext append(Object elem) {
+        return children.computeIfAbsent(elem, e -> new TrieContext(this, e));
+    }
+
+    /**
+     * @return the context that extends this context with elem, and keeps
+     * only the last k elements.
+     */
+    public TrieContext appendLimited(Object elem, int k) {
+        if (length < k) {
+            return append(elem);
+        }
+        if (k == 0) {
+            return root;
+        }
+        if (length == k) {
+            return shifted.computeIfAbsent(elem, e -> suffix(k - 1).append(e));
+        }
+        return suffix(k - 1).append(elem);
+    }
+
+    /**
+     * @return the context that consists of the last k elements of this context.
+     */
+    public TrieContext suffix(int k) {
+        if (k >= length) {
+            return this;
+        }
+        Object[] elems = new Object[k];
+        TrieContext context = this;
+        for (int i = k - 1; i >= 0; --i) {
+            elems[i] = context.elem;
+            context = context.parent;
+        }
+        TrieContext result = root;
+        for (Object e : elems) {
+            result = result.append(e);
+        }
+        return result;
+    }
+
+    /**
+     * @return the ID of this context, which is unique in its trie.
+     */
+    @Override
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return the root of the trie of this context.
+     */
+    @Override
+    public Object getIdSpace() {
+        return root;
+    }
+
+    @Override
+    public int getLength() {
+        return length;
+    }
+
+    @Override
+    public Object getElementAt(int i) {
+        if (i < 0 || i >= length) {
+            throw new IndexOutOfBoundsException(
+                    "Index " + i + " out of bounds for length " + length);
+        }
+        TrieContext context = this;
+        for (int j = length - 1; j > i; --j) {
+            context = context.parent;
+        }
+        return context.elem;
+    }
+
+    @Override
+    public int hashCode() {
+        return id;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o;
+    }
+
+    @Override
+    public String toString() {
+        StringJoiner joiner = new StringJoiner(", ", "[", "]");
+        for (int i = 0; i < length; ++i) {
+            joiner.add(String.valueOf(getElementAt(i)));
+        }
+        return joiner.toString();
+    }
+}
@@ -23,7 +23,7 @@
 package pascal.taie.analysis.pta.core.cs.selector;
 
 import pascal.taie.analysis.pta.core.cs.context.Context;
-import pascal.taie.analysis.pta.core.cs.context.ListContext;
+import pascal.taie.analysis.pta.core.cs.context.TrieContext;
 import pascal.taie.analysis.pta.core.cs.element.CSCallSite;
 import pascal.taie.analysis.pta.core.cs.element.CSMethod;
 import pascal.taie.analysis.pta.core.cs.element.CSObj;
@@ -35,9 +35,11 @@ import pascal.taie.language.classes.JMethod;
  */
 public class _2ObjSelector implements ContextSelector {
 
+    private final TrieContext root = TrieContext.newRoot();
+
     @Override
     public Context getEmptyContext() {
-        return ListContext.make();
+        return root;
     }
 
     @Override
@@ -49,20 +51,14 @@ public class _2ObjSelector implements ContextSelector {
     @Override
     public Context selectContext(CSCallSite callSite, CSObj recv, JMethod callee) {
         // TODO - finish me
-        Context oldContext = recv.getContext();
-        if(oldContext.getLength() >= 1){
-            return ListContext.make(oldContext.getElementAt(oldContext.getLength()-1), recv.getObject());
-        }
-        return ListContext.make(recv.getObject());
+        return ((TrieContext) recv.getContext())
+                .appendLimited(recv.getObject(), 2);
     }
 
     @Override
     public Context selectHeapContext(CSMethod method, Obj obj) {
         // TODO - finish me
-        Context oldContext = method.getContext();
-        if(oldContext.getLength() == 0){
-            return getEmptyContext();
-        }
-        return ListContext.make(oldContext.getElementAt(oldContext.getLength()-1));
+        // the last element of the method context
+        return ((TrieContext) method.getContext()).suffix(1);
     }
 }
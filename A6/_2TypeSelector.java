@@ -23,7 +23,7 @@
 package pascal.taie.analysis.pta.core.cs.selector;
 
 import pascal.taie.analysis.pta.core.cs.context.Context;
-import pascal.taie.analysis.pta.core.cs.context.ListContext;
+import pascal.taie.analysis.pta.core.cs.context.TrieContext;
 import pascal.taie.analysis.pta.core.cs.element.CSCallSite;
 import pascal.taie.analysis.pta.core.cs.element.CSMethod;
 import pascal.taie.analysis.pta.core.cs.element.CSObj;
@@ -36,9 +36,11 @@ import pascal.taie.language.type.Type;
  */
 public class _2TypeSelector implements ContextSelector {
 
+    private final TrieContext root = TrieContext.newRoot();
+
     @Override
     public Context getEmptyContext() {
-        return ListContext.make();
+        return root;
     }
 
     @Override
@@ -50,21 +52,14 @@ public class _2TypeSelector implements ContextSelector {
     @Override
     public Context selectContext(CSCallSite callSite, CSObj recv, JMethod callee) {
         // TODO - finish me
-        Context oldContext = recv.getContext();
-        if(oldContext.getLength() >= 1){
-            return ListContext.make(oldContext.getElementAt(oldContext.getLength()-1),
-                    recv.getObject().getContainerType());
-        }
-        return ListContext.make(recv.getObject().getContainerType());
+        return ((TrieContext) recv.getContext())
+                .appendLimited(recv.getObject().getContainerType(), 2);
     }
 
     @Override
     public Context selectHeapContext(CSMethod method, Obj obj) {
         // TODO - finish me
-        Context oldContext = method.getContext();
-        if(oldContext.getLength() == 0){
-            return getEmptyContext();
-        }
-        return ListContext.make(oldContext.getElementAt(oldContext.getLength()-1));
+        // the last element of the method context
+        return ((TrieContext) method.getContext()).suffix(1);
     }
 }
@@ -0,0 +1,107 @@
+class Node {
+    Object value;
+    Node next;
+
+    Node(Object value, Node next) {
+        this.value = value;
+        this.next = next;
+    }
+}
+
+class LinkedList {
+    private Node head;
+
+    void add(Object o) {
+        head = new Node(o, head);
+    }
+
+    Object first() {
+        return head == null ? null : head.value;
+    }
+
+    Iterator iterator() {
+        return new Iterator(head);
+    }
+}
+
+class Iterator {
+    private Node current;
+
+    Iterator(Node current) {
+        this.current = current;
+    }
+
+    boolean hasNext() {
+        return current != null;
+    }
+
+    Object next() {
+        Object value = current.value;
+        current = current.next;
+        return value;
+    }
+}
+
+class Pair {
+    private final Object first;
+    private final Object second;
+
+    Pair(Object first, Object second) {
+        this.first = first;
+        this.second = second;
+    }
+
+    Object getFirst() {
+        return first;
+    }
+
+    Object getSecond() {
+        return second;
+    }
+
+    Pair swap() {
+        return new Pair(second, first);
+    }
+}
+
+class A {
+}
+
+class B {
+}
+
+class C {
+}
+
+public class Main {
+
+    public static void main(String[] args) {
+        LinkedList as = new LinkedList();
+        LinkedList bs = new LinkedList();
+        as.add(new A());
+        bs.add(new B());
+        Object a = as.first();
+        Object b = bs.first();
+        Pair p = new Pair(a, b);
+        Pair q = p.swap();
+        LinkedList cs = copy(bs);
+        cs.add(new C());
+        for (Iterator it = cs.iterator(); it.hasNext(); ) {
+            use(it.next());
+        }
+        use(q.getFirst());
+        use(q.getSecond());
+    }
+
+    static LinkedList copy(LinkedList list) {
+        LinkedList result = new LinkedList();
+        for (Iterator it = list.iterator(); it.hasNext(); ) {
+            result.add(it.next());
+        }
+        return result;
+    }
+
+    static void use(Object o) {
+        o.hashCode();
+    }
+}
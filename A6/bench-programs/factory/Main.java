@@ -0,0 +1,94 @@
+interface Shape {
+    double area();
+}
+
+class Circle implements Shape {
+    private final double r;
+
+    Circle(double r) {
+        this.r = r;
+    }
+
+    public double area() {
+        return 3.14159 * r * r;
+    }
+}
+
+class Square implements Shape {
+    private final double side;
+
+    Square(double side) {
+        this.side = side;
+    }
+
+    public double area() {
+        return side * side;
+    }
+}
+
+interface Factory {
+    Shape create(double size);
+}
+
+class CircleFactory implements Factory {
+    public Shape create(double size) {
+        return new Circle(size);
+    }
+}
+
+class SquareFactory implements Factory {
+    public Shape create(double size) {
+        return new Square(size);
+    }
+}
+
+class Registry {
+    private Factory circles;
+    private Factory squares;
+
+    void register(String kind, Factory factory) {
+        if (kind.equals("circle")) {
+            circles = factory;
+        } else {
+            squares = factory;
+        }
+    }
+
+    Factory lookup(String kind) {
+        return kind.equals("circle") ? circles : squares;
+    }
+}
+
+class Holder {
+    private Shape shape;
+
+    Holder(Shape shape) {
+        this.shape = shape;
+    }
+
+    Shape get() {
+        return shape;
+    }
+
+    Holder wrap() {
+        return new Holder(shape);
+    }
+}
+
+public class Main {
+
+    public static void main(String[] args) {
+        Registry registry = new Registry();
+        registry.register("circle", new CircleFactory());
+        registry.register("square", new SquareFactory());
+        Shape c = make(registry, "circle", 1.0);
+        Shape s = make(registry, "square", 2.0);
+        Holder hc = new Holder(c).wrap();
+        Holder hs = new Holder(s).wrap();
+        System.out.println(hc.get().area() + hs.get().area());
+    }
+
+    static Shape make(Registry registry, String kind, double size) {
+        return registry.lookup(kind).create(size);
+    }
+}
@@ -0,0 +1,117 @@
+interface Visitor {
+    Object visitNum(Num n);
+
+    Object visitAdd(Add a);
+
+    Object visitMul(Mul m);
+}
+
+abstract class Expr {
+    abstract Object accept(Visitor v);
+}
+
+class Num extends Expr {
+    final int value;
+
+    Num(int value) {
+        this.value = value;
+    }
+
+    Object accept(Visitor v) {
+        return v.visitNum(this);
+    }
+}
+
+class Add extends Expr {
+    final Expr left;
+    final Expr right;
+
+    Add(Expr left, Expr right) {
+        this.left = left;
+        this.right = right;
+    }
+
+    Object accept(Visitor v) {
+        return v.visitAdd(this);
+    }
+}
+
+class Mul extends Expr {
+    final Expr left;
+    final Expr right;
+
+    Mul(Expr left, Expr right) {
+        this.left = left;
+        this.right = right;
+    }
+
+    Object accept(Visitor v) {
+        return v.visitMul(this);
+    }
+}
+
+class Evaluator implements Visitor {
+    public Object visitNum(Num n) {
+        return new Integer(n.value);
+    }
+
+    public Object visitAdd(Add a) {
+        Integer l = (Integer) a.left.accept(this);
+        Integer r = (Integer) a.right.accept(this);
+        return new Integer(l.intValue() + r.intValue());
+    }
+
+    public Object visitMul(Mul m) {
+        Integer l = (Integer) m.left.accept(this);
+        Integer r = (Integer) m.right.accept(this);
+        return new Integer(l.intValue() * r.intValue());
+    }
+}
+
+class Printer implements Visitor {
+    public Object visitNum(Num n) {
+        return String.valueOf(n.value);
+    }
+
+    public Object visitAdd(Add a) {
+        return "(" + a.left.accept(this) + " + " + a.right.accept(this) + ")";
+    }
+
+    public Object visitMul(Mul m) {
+        return str(m.left.accept(this)) + " * " + str(m.right.accept(this));
+    }
+
+    private static String str(Object o) {
+        return (String) o;
+    }
+}
+
+class Simplifier implements Visitor {
+    public Object visitNum(Num n) {
+        return n;
+    }
+
+    public Object visitAdd(Add a) {
+        Expr l = (Expr) a.left.accept(this);
+        Expr r = (Expr) a.right.accept(this);
+        return new Add(l, r);
+    }
+
+    public Object visitMul(Mul m) {
+        Expr l = (Expr) m.left.accept(this);
+        Expr r = (Expr) m.right.accept(this);
+        return new Mul(l, r);
+    }
+}
+
+public class Main {
+
+    public static void main(String[] args) {
+        Expr e = new Add(new Num(1), new Mul(new Num(2), new Num(3)));
+        Object value = e.accept(new Evaluator());
+        Object text = e.accept(new Printer());
+        Expr simplified = (Expr) e.accept(new Simplifier());
+        Object text2 = simplified.accept(new Printer());
+        System.out.println(text + " = " + value + ", " + text2);
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.util.collection.Maps;
+
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Answers whether two variables may be aliases, i.e., whether their
+ * points-to sets intersect.
+ * <p>
+ * Each variable has a 64-bit signature, which is a Bloom filter of its
+ * points-to set with one bit per object. If the signatures of two
+ * variables are disjoint, they cannot share any object, and the query
+ * is rejected without touching their points-to sets. Otherwise, the
+ * exact check is performed, and its result is kept in a bounded LRU
+ * cache keyed by the pair of variables.
+ */
+public class AliasOracle {
+
+    private static final Logger logger = LogManager.getLogger(AliasOracle.class);
+
+    public static final int DEFAULT_CAPACITY = 65536;
+
+    private final PointsToProjection pts;
+
+    private final Map<Var, Integer> varIds = Maps.newMap();
+
+    private final Map<Var, Long> signatures = Maps.newMap();
+
+    private final Map<Long, Boolean> cache;
+
+    private long nQueries;
+
+    private long nRejected;
+
+    private long nCacheHits;
+
+    private long nExactChecks;
+
+    private long nFalsePositives;
+
+    public AliasOracle(PointsToProjection pts) {
+        this(pts, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity the maximum number of cached exact checks.
+     */
+    public AliasOracle(PointsToProjection pts, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException(
+                    "capacity must be positive, given: " + capacity);
+        }
+        this.pts = pts;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * @return true if the two variables may point to the same object.
+     */
+    public boolean mayAlias(Var v1, Var v2) {
+        ++nQueries;
+        if ((getSignature(v1) & getSignature(v2)) == 0) {
+            ++nRejected;
+            return false;
+        }
+        int id1 = getId(v1), id2 = getId(v2);
+        long key = id1 < id2 ?
+                ((long) id1 << 32) | id2 : ((long) id2 << 32) | id1;
+        Boolean result = cache.get(key);
+        if (result != null) {
+            ++nCacheHits;
+            return result;
+        }
+        ++nExactChecks;
+        result = pts.mayAlias(v1, v2);
+        if (!result) {
+            ++nFalsePositives;
+        }
+        cache.put(key, result);
+        return result;
+    }
+
+    /**
+     * @return the number of queries rejected by signatures.
+     */
+    public long getRejected() {
+        return nRejected;
+    }
+
+    /**
+     * @return the number of queries answered by the cache.
+     */
+    public long getCacheHits() {
+        return nCacheHits;
+    }
+
+    /**
+     * @return the number of queries that performed exact checks.
+     */
+    public long getCacheMisses() {
+        return nExactChecks;
+    }
+
+    /**
+     * @return the number of exact checks whose signatures overlap
+     * but points-to sets do not.
+     */
+    public long getFalsePositives() {
+        return nFalsePositives;
+    }
+
+    public void logStatistics() {
+        logger.info("Alias queries: {}, rejected by signatures: {} ({}), " +
+                        "cache hits: {} ({}), exact checks: {}, " +
+                        "false positives: {} ({} of exact checks)",
+                nQueries, nRejected, rate(nRejected, nQueries),
+                nCacheHits, rate(nCacheHits, nQueries), nExactChecks,
+                nFalsePositives, rate(nFalsePositives, nExactChecks));
+    }
+
+    private static String rate(long n, long total) {
+        return total == 0 ? "-" : String.format("%.2f%%", 100.0 * n / total);
+    }
+
+    private int getId(Var var) {
+        return varIds.computeIfAbsent(var, v -> varIds.size());
+    }
+
+    private long getSignature(Var var) {
+        Long signature = signatures.get(var);
+        if (signature == null) {
+            BitSet bits = pts.getBits(var);
+            long sig = 0;
+            for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+                sig |= 1L << (mix(i) & 63);
+            }
+            signature = sig;
+            signatures.put(var, signature);
+        }
+        return signature;
+    }
+
+    /**
+     * Scatters consecutive object numbers over the signature bits.
+     */
+    private static int mix(int i) {
+        int h = i * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
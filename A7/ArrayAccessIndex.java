@@ -0,0 +1,165 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.inter;
+
+import pascal.taie.analysis.dataflow.analysis.constprop.Value;
+import pascal.taie.analysis.pta.PointsToProjection;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.LoadArray;
+import pascal.taie.ir.stmt.StoreArray;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Sets;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index of array loads, keyed by the array objects they may access.
+ * <p>
+ * The loads of each array object are further bucketed by the current
+ * value of their index variable: one bucket per constant index, and one
+ * bucket for NAC indexes. A load whose index is still UNDEF is in no
+ * bucket, as it cannot alias any store yet. The index values of loads
+ * and stores are updated by the analysis whenever their index facts
+ * change, so a store only affects the loads that may share its index.
+ */
+class ArrayAccessIndex {
+
+    private final PointsToProjection pts;
+
+    private final Map<Obj, Buckets<LoadArray>> loads = Maps.newMap();
+
+    /**
+     * Current index value of each array access.
+     */
+    private final Map<Stmt, Value> indexes = Maps.newMap();
+
+    ArrayAccessIndex(PointsToProjection pts) {
+        this.pts = pts;
+    }
+
+    /**
+     * Updates the index value of given store.
+     */
+    void updateIndex(StoreArray store, Value index) {
+        indexes.put(store, index);
+    }
+
+    /**
+     * Updates the index value of given load.
+     */
+    void updateIndex(LoadArray load, Value index) {
+        updateIndex(load, load.getArrayAccess().getBase(), index, loads);
+    }
+
+    /**
+     * @return the loads that may read the array element written by given store.
+     */
+    Set<LoadArray> getAliasLoads(StoreArray store) {
+        return getAliases(store, store.getArrayAccess().getBase(), loads);
+    }
+
+    private List<Obj> getArrays(Var base) {
+        return pts.getPointsToSet(base);
+    }
+
+    private <S extends Stmt> void updateIndex(
+            S access, Var base, Value index, Map<Obj, Buckets<S>> buckets) {
+        Value old = indexes.put(access, index);
+        if (index.equals(old)) {
+            return;
+        }
+        if (old == null) {
+            old = Value.getUndef();
+        }
+        for (Obj array : getArrays(base)) {
+            Buckets<S> b = buckets.computeIfAbsent(array, o -> new Buckets<>());
+            b.remove(old, access);
+            b.add(index, access);
+        }
+    }
+
+    private <S extends Stmt> Set<S> getAliases(
+            Stmt access, Var base, Map<Obj, Buckets<S>> buckets) {
+        Value index = indexes.getOrDefault(access, Value.getUndef());
+        if (index.isUndef()) {
+            return Set.of();
+        }
+        Set<S> result = Sets.newSet();
+        for (Obj array : getArrays(base)) {
+            Buckets<S> b = buckets.get(array);
+            if (b != null) {
+                b.collect(index, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Accesses of an array object, bucketed by their index values.
+     */
+    private static class Buckets<S> {
+
+        private final Map<Integer, Set<S>> constants = Maps.newMap();
+
+        private final Set<S> nac = Sets.newSet();
+
+        private void add(Value index, S access) {
+            if (index.isConstant()) {
+                constants.computeIfAbsent(index.getConstant(), i -> Sets.newSet())
+                        .add(access);
+            } else if (index.isNAC()) {
+                nac.add(access);
+            }
+        }
+
+        private void remove(Value index, S access) {
+            if (index.isConstant()) {
+                Set<S> bucket = constants.get(index.getConstant());
+                if (bucket != null) {
+                    bucket.remove(access);
+                }
+            } else if (index.isNAC()) {
+                nac.remove(access);
+            }
+        }
+
+        /**
+         * Collects the accesses whose indexes may equal given index.
+         */
+        private void collect(Value index, Set<S> result) {
+            result.addAll(nac);
+            if (index.isConstant()) {
+                Set<S> bucket = constants.get(index.getConstant());
+                if (bucket != null) {
+                    result.addAll(bucket);
+                }
+            } else {
+                constants.values().forEach(result::addAll);
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.inter;
+
+import pascal.taie.analysis.pta.AliasOracle;
+import pascal.taie.ir.exp.InstanceFieldAccess;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.LoadField;
+import pascal.taie.ir.stmt.StoreField;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.language.classes.JField;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.MultiMap;
+import pascal.taie.util.collection.Sets;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index of field loads, built once before the analysis.
+ * <p>
+ * Field loads are indexed by the field they access. The loads aliased with
+ * a store are thus found among the loads of its field only, and for instance
+ * fields, by asking the alias oracle whether the base variables of the store
+ * and the load may be aliases, instead of intersecting the points-to sets
+ * of all variables. The result of each store is computed once and cached.
+ */
+class FieldAccessIndex {
+
+    private final AliasOracle aliasOracle;
+
+    private final MultiMap<JField, LoadField> instanceLoads = Maps.newMultiMap();
+
+    private final MultiMap<JField, LoadField> staticLoads = Maps.newMultiMap();
+
+    private final Map<StoreField, Set<LoadField>> aliasLoads = Maps.newMap();
+
+    FieldAccessIndex(AliasOracle aliasOracle, Iterable<Stmt> stmts) {
+        this.aliasOracle = aliasOracle;
+        for (Stmt stmt : stmts) {
+            if (stmt instanceof LoadField load) {
+                JField field = load.getFieldRef().resolve();
+                if (load.isStatic()) {
+                    staticLoads.put(field, load);
+                } else {
+                    instanceLoads.put(field, load);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the loads that may read the field written by given store.
+     */
+    Set<LoadField> getAliasLoads(StoreField store) {
+        return aliasLoads.computeIfAbsent(store, s -> {
+            JField field = s.getFieldRef().resolve();
+            if (s.isStatic()) {
+                return staticLoads.get(field);
+            }
+            Var base = getBase(s);
+            Set<LoadField> loads = Sets.newSet();
+            for (LoadField load : instanceLoads.get(field)) {
+                if (aliasOracle.mayAlias(base, getBase(load))) {
+                    loads.add(load);
+                }
+            }
+            return loads;
+        });
+    }
+
+    private static Var getBase(StoreField store) {
+        return ((InstanceFieldAccess) store.getFieldAccess()).getBase();
+    }
+
+    private static Var getBase(LoadField load) {
+        return ((InstanceFieldAccess) load.getFieldAccess()).getBase();
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.inter;
+
+import pascal.taie.analysis.dataflow.analysis.constprop.ConstantPropagation;
+import pascal.taie.analysis.dataflow.analysis.constprop.Value;
+import pascal.taie.analysis.pta.PointsToProjection;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.ir.exp.InstanceFieldAccess;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.LoadArray;
+import pascal.taie.ir.stmt.LoadField;
+import pascal.taie.ir.stmt.StoreArray;
+import pascal.taie.ir.stmt.StoreField;
+import pascal.taie.language.classes.JField;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Pair;
+
+import java.util.Map;
+
+/**
+ * Values of abstract heap locations, i.e., instance fields (object, field),
+ * static fields, and array elements (array object, index).
+ * <p>
+ * The value of a location is the meet of the values written to it by all
+ * stores analyzed so far. As values only go down the lattice during the
+ * analysis, the table is updated monotonically: a store meets its value
+ * into the locations it may write, and a load reads the meet of the
+ * locations it may read, instead of re-meeting the OUT facts of all
+ * aliasing stores. The update methods report whether any location has
+ * changed, so that the analysis only re-analyzes the dependent loads
+ * when needed.
+ */
+class HeapValueTable {
+
+    private final PointsToProjection pts;
+
+    private final ConstantPropagation cp;
+
+    private final Map<Pair<Obj, JField>, Value> instanceFields = Maps.newMap();
+
+    private final Map<JField, Value> staticFields = Maps.newMap();
+
+    private final Map<Obj, ArrayCells> arrays = Maps.newMap();
+
+    HeapValueTable(PointsToProjection pts, ConstantPropagation cp) {
+        this.pts = pts;
+        this.cp = cp;
+    }
+
+    /**
+     * Meets given value into the fields written by given store.
+     *
+     * @return true if the value of any field changes.
+     */
+    boolean updateField(StoreField store, Value value) {
+        JField field = store.getFieldRef().resolve();
+        if (store.isStatic()) {
+            return meetInto(staticFields, field, value);
+        }
+        boolean changed = false;
+        Var base = ((InstanceFieldAccess) store.getFieldAccess()).getBase();
+        for (Obj obj : pts.getPointsToSet(base)) {
+            changed |= meetInto(instanceFields, new Pair<>(obj, field), value);
+        }
+        return changed;
+    }
+
+    /**
+     * @return the value of the fields read by given load.
+     */
+    Value getField(LoadField load) {
+        JField field = load.getFieldRef().resolve();
+        if (load.isStatic()) {
+            return staticFields.getOrDefault(field, Value.getUndef());
+        }
+        Value result = Value.getUndef();
+        Var base = ((InstanceFieldAccess) load.getFieldAccess()).getBase();
+        for (Obj obj : pts.getPointsToSet(base)) {
+            result = cp.meetValue(result, instanceFields.getOrDefault(
+                    new Pair<>(obj, field), Value.getUndef()));
+        }
+        return result;
+    }
+
+    /**
+     * Meets given value into the array elements written by given store,
+     * whose index variable has given value.
+     *
+     * @return true if the value of any element changes.
+     */
+    boolean updateArray(StoreArray store, Value index, Value value) {
+        if (index.isUndef()) {
+            // the store cannot be executed yet
+            return false;
+        }
+        boolean changed = false;
+        for (Obj array : pts.getPointsToSet(store.getArrayAccess().getBase())) {
+            changed |= arrays.computeIfAbsent(array, a -> new ArrayCells())
+                    .update(index, value);
+        }
+        return changed;
+    }
+
+    /**
+     * @return the value of the array elements read by given load,
+     * whose index variable has given value.
+     */
+    Value getArray(LoadArray load, Value index) {
+        Value result = Value.getUndef();
+        if (index.isUndef()) {
+            return result;
+        }
+        for (Obj array : pts.getPointsToSet(load.getArrayAccess().getBase())) {
+            ArrayCells cells = arrays.get(array);
+            if (cells != null) {
+                result = cp.meetValue(result, cells.get(index));
+            }
+        }
+        return result;
+    }
+
+    private <K> boolean meetInto(Map<K, Value> values, K key, Value value) {
+        Value old = values.getOrDefault(key, Value.getUndef());
+        Value result = cp.meetValue(old, value);
+        if (result.equals(old)) {
+            return false;
+        }
+        values.put(key, result);
+        return true;
+    }
+
+    /**
+     * Element values of an array object: one cell per constant index,
+     * one cell for the elements written with NAC indexes, and the meet
+     * of all elements, which is read by loads with NAC indexes.
+     */
+    private class ArrayCells {
+
+        private final Map<Integer, Value> constants = Maps.newMap();
+
+        private Value nac = Value.getUndef();
+
+        private Value all = Value.getUndef();
+
+        private boolean update(Value index, Value value) {
+            boolean changed;
+            if (index.isNAC()) {
+                Value old = nac;
+                nac = cp.meetValue(nac, value);
+                changed = !nac.equals(old);
+            } else {
+                changed = meetInto(constants, index.getConstant(), value);
+            }
+            // all cannot change unless the written cell changes
+            all = cp.meetValue(all, value);
+            return changed;
+        }
+
+        private Value get(Value index) {
+            if (index.isNAC()) {
+                return all;
+            }
+            return cp.meetValue(nac,
+                    constants.getOrDefault(index.getConstant(), Value.getUndef()));
+        }
+    }
+}
@@ -26,27 +26,26 @@ import pascal.taie.World;
 import pascal.taie.analysis.dataflow.analysis.constprop.CPFact;
 import pascal.taie.analysis.dataflow.analysis.constprop.ConstantPropagation;
 import pascal.taie.analysis.dataflow.analysis.constprop.Value;
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
 import pascal.taie.analysis.graph.cfg.CFG;
 import pascal.taie.analysis.graph.cfg.CFGBuilder;
 import pascal.taie.analysis.graph.icfg.CallEdge;
 import pascal.taie.analysis.graph.icfg.CallToReturnEdge;
+import pascal.taie.analysis.graph.icfg.ICFGBuilder;
 import pascal.taie.analysis.graph.icfg.NormalEdge;
 import pascal.taie.analysis.graph.icfg.ReturnEdge;
+import pascal.taie.analysis.pta.AliasOracle;
 import pascal.taie.analysis.pta.PointerAnalysisResult;
-import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.analysis.pta.PointsToProjection;
 import pascal.taie.config.AnalysisConfig;
 import pascal.taie.ir.IR;
-import pascal.taie.ir.exp.InstanceFieldAccess;
 import pascal.taie.ir.exp.InvokeExp;
 import pascal.taie.ir.exp.LValue;
 import pascal.taie.ir.exp.Var;
 import pascal.taie.ir.stmt.*;
-import pascal.taie.language.classes.JClass;
-import pascal.taie.language.classes.JField;
 import pascal.taie.language.classes.JMethod;
 import soot.util.Cons;
 
-import java.util.HashSet;
 import java.util.List;
 
 /**
@@ -59,6 +58,15 @@ public class InterConstantPropagation extends
 
     private final ConstantPropagation cp;
     private PointerAnalysisResult pta;
+
+    private AliasOracle aliasOracle;
+
+    private FieldAccessIndex fieldAccessIndex;
+
+    private ArrayAccessIndex arrayAccessIndex;
+
+    private HeapValueTable heapValues;
+
     public InterConstantPropagation(AnalysisConfig config) {
         super(config);
         cp = new ConstantPropagation(new AnalysisConfig(ConstantPropagation.ID));
@@ -69,6 +77,56 @@ public class InterConstantPropagation extends
         String ptaId = getOptions().getString("pta");
         pta = World.get().getResult(ptaId);
         // You can do initialization work here
+        int ptsCacheSize = getOptions().has("pts-cache-size") ?
+                getOptions().getInt("pts-cache-size") :
+                PointsToProjection.DEFAULT_CAPACITY;
+        PointsToProjection pts = new PointsToProjection(pta, ptsCacheSize);
+        int aliasCacheSize = getOptions().has("alias-cache-size") ?
+                getOptions().getInt("alias-cache-size") :
+                AliasOracle.DEFAULT_CAPACITY;
+        aliasOracle = new AliasOracle(pts, aliasCacheSize);
+        fieldAccessIndex = new FieldAccessIndex(aliasOracle, icfg);
+        arrayAccessIndex = new ArrayAccessIndex(pts);
+        heapValues = new HeapValueTable(pts, cp);
+    }
+
+    @Override
+    protected void finish() {
+        aliasOracle.logStatistics();
+    }
+
+    /**
+     * Runs the analysis. If option "sparse" is set, facts are propagated
+     * only between nodes relevant to int values and heap accesses.
+     */
+    @Override
+    public DataflowResult<Stmt, CPFact> analyze() {
+        if (!getOptions().has("sparse") || !getOptions().getBoolean("sparse")) {
+            return super.analyze();
+        }
+        icfg = World.get().getResult(ICFGBuilder.ID);
+        initialize();
+        solver = new InterSolver<>(this, icfg);
+        solver.setSparseICFG(new SparseICFG<>(icfg, this::isRelevant));
+        DataflowResult<Stmt, CPFact> result = solver.solve();
+        finish();
+        return result;
+    }
+
+    /**
+     * @return true if the statement may change int facts or its facts
+     * are read by other statements, i.e., it is a call, a field/array
+     * access, or defines an int variable.
+     */
+    private boolean isRelevant(Stmt stmt) {
+        if (stmt instanceof Invoke
+                || stmt instanceof LoadField || stmt instanceof StoreField
+                || stmt instanceof LoadArray || stmt instanceof StoreArray) {
+            return true;
+        }
+        return stmt.getDef().isPresent()
+                && stmt.getDef().get() instanceof Var var
+                && ConstantPropagation.canHoldInt(var);
     }
 
     @Override
@@ -115,150 +173,41 @@ public class InterConstantPropagation extends
             if(!ConstantPropagation.canHoldInt(lval)){
                 return out.copyFrom(in);
             }
-            Value val = Value.getUndef();
-            if(loadFieldStmt.isStatic()){
-                // static load field: y = T.f
-                for(Stmt s: icfg){
-                    if(s instanceof StoreField storeFieldStmt && storeFieldStmt.isStatic()){
-                        JField loadField = loadFieldStmt.getFieldAccess().getFieldRef().resolve();
-                        JField storeField = storeFieldStmt.getFieldAccess().getFieldRef().resolve();
-                        JClass loadClass = loadFieldStmt.getFieldRef().getDeclaringClass();
-                        JClass storeClass = storeFieldStmt.getFieldRef().getDeclaringClass();
-                        if(storeField == loadField && loadClass == storeClass){
-                            val = cp.meetValue(val,
-                                    solver.getResult().getOutFact(storeFieldStmt).get(storeFieldStmt.getRValue()));
-                        }
-                    }
-                }
-            }else{
-                // y = x.f
-                Var base = ((InstanceFieldAccess)(loadFieldStmt.getFieldAccess())).getBase();
-                // need import pta.core.heap.Obj here
-                HashSet<Obj> baseSet = new HashSet<>(pta.getPointsToSet(base));
-                for(Var var: pta.getVars()){
-                    HashSet<Obj> varSet = new HashSet<>(pta.getPointsToSet(var));
-                    HashSet<Obj> intersectionSet = new HashSet<>(baseSet);
-                    intersectionSet.retainAll(varSet);
-                    if(!intersectionSet.isEmpty()){
-                        // intersection not empty: alias
-                        for(StoreField storeFieldStmt: var.getStoreFields()){
-                            if(!storeFieldStmt.isStatic()){
-                                JField loadField = loadFieldStmt.getFieldAccess().getFieldRef().resolve();
-                                JField storeField = storeFieldStmt.getFieldAccess().getFieldRef().resolve();
-                                if(storeField == loadField){
-                                    val = cp.meetValue(val,
-                                            solver.getResult().getOutFact(storeFieldStmt).get(storeFieldStmt.getRValue()));
-                                }
-                            }
-                        }
-                    }
-                }
-            }
+            Value val = heapValues.getField(loadFieldStmt);
             out.copyFrom(in);
             out.update(loadFieldStmt.getLValue(), val);
             return !out.equals(originalOut);
         } else if (stmt instanceof StoreField storeFieldStmt) {
-            if(storeFieldStmt.isStatic()){
-                // T.f = y
-                for(Stmt s: icfg){
-                    if(s instanceof LoadField loadFieldStmt && loadFieldStmt.isStatic()){
-                        JField loadField = loadFieldStmt.getFieldAccess().getFieldRef().resolve();
-                        JField storeField = storeFieldStmt.getFieldAccess().getFieldRef().resolve();
-                        if(storeField == loadField){
-                            solver.add2WorkList(loadFieldStmt);
-                        }
-                    }
-                }
-            }else{
-                // x.f = y
-                Var base = ((InstanceFieldAccess)(storeFieldStmt.getFieldAccess())).getBase();
-                // need import pta.core.heap.Obj here
-                HashSet<Obj> baseSet = new HashSet<>(pta.getPointsToSet(base));
-                for(Var var: pta.getVars()){
-                    HashSet<Obj> varSet = new HashSet<>(pta.getPointsToSet(var));
-                    HashSet<Obj> intersectionSet = new HashSet<>(baseSet);
-                    intersectionSet.retainAll(varSet);
-                    if(!intersectionSet.isEmpty()){
-                        // intersection not empty: alias
-                        for(LoadField loadFieldStmt: var.getLoadFields()){
-                            if(!storeFieldStmt.isStatic()){
-                                JField loadField = loadFieldStmt.getFieldAccess().getFieldRef().resolve();
-                                JField storeField = storeFieldStmt.getFieldAccess().getFieldRef().resolve();
-                                JClass loadClass = loadFieldStmt.getFieldRef().getDeclaringClass();
-                                JClass storeClass = storeFieldStmt.getFieldRef().getDeclaringClass();
-                                if(storeField == loadField && loadClass == storeClass){
-                                    solver.add2WorkList(loadFieldStmt);
-                                }
-                            }
-                        }
-                    }
+            // x.f = y / T.f = y
+            // only re-analyze the loads when the stored field changes
+            Value val = in.get(storeFieldStmt.getRValue());
+            if(heapValues.updateField(storeFieldStmt, val)){
+                for(LoadField loadFieldStmt: fieldAccessIndex.getAliasLoads(storeFieldStmt)){
+                    solver.add2WorkList(loadFieldStmt);
                 }
             }
         } else if (stmt instanceof LoadArray loadArrayStmt) {
             // x = a[i]
-            Var base = loadArrayStmt.getArrayAccess().getBase();
-            HashSet<Obj> baseSet = new HashSet<>(pta.getPointsToSet(base));
-            Value val = Value.getUndef();
-            for(Var var: pta.getVars()){
-                HashSet<Obj> varSet = new HashSet<>(pta.getPointsToSet(var));
-                HashSet<Obj> intersectionSet = new HashSet<>(baseSet);
-                intersectionSet.retainAll(varSet);
-                if(!intersectionSet.isEmpty()){
-                    // not empty: base intersection, but not always alias
-                    for(StoreArray storeArrayStmt: var.getStoreArrays()){
-                        Var storeIndex = storeArrayStmt.getArrayAccess().getIndex();
-                        CPFact storeOutFact = solver.getResult().getOutFact(storeArrayStmt);
-                        Var loadIndex = loadArrayStmt.getArrayAccess().getIndex();
-                        CPFact loadOutFact = solver.getResult().getOutFact(loadArrayStmt);
-                        // check the index
-                        if(isIndexIntersect(loadOutFact.get(loadIndex), storeOutFact.get(storeIndex)) ||
-                        isIndexIntersect(storeOutFact.get(storeIndex), in.get(loadIndex))){
-                            // alias
-                            val = cp.meetValue(val, storeOutFact.get(storeArrayStmt.getRValue()));
-                        }
-                    }
-                }
-            }
+            Var loadIndex = loadArrayStmt.getArrayAccess().getIndex();
+            arrayAccessIndex.updateIndex(loadArrayStmt, in.get(loadIndex));
+            Value val = heapValues.getArray(loadArrayStmt, in.get(loadIndex));
             out.copyFrom(in);
             out.update(loadArrayStmt.getLValue(), val);
             return !out.equals(originalOut);
         } else if (stmt instanceof StoreArray storeArrayStmt) {
             // a[i] = x
-            Var base = storeArrayStmt.getArrayAccess().getBase();
-            HashSet<Obj> baseSet = new HashSet<>(pta.getPointsToSet(base));
-            Value val = Value.getUndef();
-            for(Var var: pta.getVars()){
-                HashSet<Obj> varSet = new HashSet<>(pta.getPointsToSet(var));
-                HashSet<Obj> intersectionSet = new HashSet<>(baseSet);
-                intersectionSet.retainAll(varSet);
-                if(!intersectionSet.isEmpty()){
-                    for(LoadArray loadArrayStmt: var.getLoadArrays()){
-                        Var storeIndex = storeArrayStmt.getArrayAccess().getIndex();
-                        CPFact storeOutFact = solver.getResult().getOutFact(storeArrayStmt);
-                        Var loadIndex = loadArrayStmt.getArrayAccess().getIndex();
-                        CPFact loadOutFact = solver.getResult().getOutFact(loadArrayStmt);
-                        // check the index
-                        if(isIndexIntersect(loadOutFact.get(loadIndex), storeOutFact.get(storeIndex)) ||
-                        isIndexIntersect(loadOutFact.get(loadIndex), in.get(storeIndex))){
-                            solver.add2WorkList(loadArrayStmt);
-                        }
-                    }
+            Var storeIndex = storeArrayStmt.getArrayAccess().getIndex();
+            arrayAccessIndex.updateIndex(storeArrayStmt, in.get(storeIndex));
+            Value val = in.get(storeArrayStmt.getRValue());
+            if(heapValues.updateArray(storeArrayStmt, in.get(storeIndex), val)){
+                for(LoadArray loadArrayStmt: arrayAccessIndex.getAliasLoads(storeArrayStmt)){
+                    solver.add2WorkList(loadArrayStmt);
                 }
             }
         }
         return cp.transferNode(stmt, in, out);
     }
 
-    private boolean isIndexIntersect(Value v1, Value v2){
-        if(v1.isUndef() || v2.isUndef()){
-            return false;
-        } else if (v1.isConstant() && v2.isConstant()) {
-            return v1.getConstant() == v2.getConstant();
-        }else{
-            return true;
-        }
-    }
-
     @Override
     protected CPFact transferNormalEdge(NormalEdge<Stmt> edge, CPFact out) {
         // TODO - finish me
@@ -0,0 +1,177 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta;
+
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.util.collection.Maps;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Context-insensitive projection of a {@link PointerAnalysisResult}.
+ * <p>
+ * For context-sensitive pointer analysis, each query of
+ * {@link PointerAnalysisResult#getPointsToSet(Var)} merges the points-to
+ * sets of all contexts of the variable. This class computes the merged
+ * set of a variable lazily, stores it as a bit set over a numbering of
+ * the abstract objects, and caches it, so that repeated queries and
+ * alias checks are cheap. The number of cached variables is bounded,
+ * and the least recently used ones are evicted.
+ */
+public class PointsToProjection {
+
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    private final PointerAnalysisResult pta;
+
+    private final Map<Obj, Integer> objIds = Maps.newMap();
+
+    private final List<Obj> objs = new ArrayList<>();
+
+    private final Map<Var, Entry> cache;
+
+    private long hits;
+
+    private long misses;
+
+    public PointsToProjection(PointerAnalysisResult pta) {
+        this(pta, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity the maximum number of cached variables.
+     */
+    public PointsToProjection(PointerAnalysisResult pta, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException(
+                    "capacity must be positive, given: " + capacity);
+        }
+        this.pta = pta;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Var, Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * @return the objects pointed to by given variable in any context.
+     * The result is an unmodifiable view, which is decoded once and
+     * cached together with the bit set.
+     */
+    public List<Obj> getPointsToSet(Var var) {
+        Entry entry = getEntry(var);
+        if (entry.objs == null) {
+            BitSet bits = entry.bits;
+            List<Obj> result = new ArrayList<>(bits.cardinality());
+            for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+                result.add(objs.get(i));
+            }
+            entry.objs = Collections.unmodifiableList(result);
+        }
+        return entry.objs;
+    }
+
+    /**
+     * @return true if the two variables may point to the same object.
+     */
+    public boolean mayAlias(Var v1, Var v2) {
+        if (v1 == v2) {
+            return !getBits(v1).isEmpty();
+        }
+        BitSet bits1 = getBits(v1);
+        // getBits(v2) may evict v1, but bits1 is still valid
+        return bits1.intersects(getBits(v2));
+    }
+
+    /**
+     * @return the number of queries answered by the cache.
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of queries that computed the merged set.
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the merged points-to set of given variable as a bit set
+     * over object numbers. The result must not be modified.
+     */
+    BitSet getBits(Var var) {
+        return getEntry(var).bits;
+    }
+
+    private Entry getEntry(Var var) {
+        Entry entry = cache.get(var);
+        if (entry != null) {
+            ++hits;
+            return entry;
+        }
+        ++misses;
+        Set<Obj> pts = pta.getPointsToSet(var);
+        BitSet bits = new BitSet();
+        for (Obj obj : pts) {
+            bits.set(getId(obj));
+        }
+        entry = new Entry(bits);
+        cache.put(var, entry);
+        return entry;
+    }
+
+    private int getId(Obj obj) {
+        return objIds.computeIfAbsent(obj, o -> {
+            objs.add(o);
+            return objs.size() - 1;
+        });
+    }
+
+    /**
+     * Cached points-to set of a variable.
+     */
+    private static class Entry {
+
+        private final BitSet bits;
+
+        /**
+         * The objects of {@link #bits}, or null if not decoded yet.
+         */
+        private List<Obj> objs;
+
+        private Entry(BitSet bits) {
+            this.bits = bits;
+        }
+    }
+}
@@ -45,20 +45,18 @@ import pascal.taie.analysis.pta.core.cs.element.StaticField;
 import pascal.taie.analysis.pta.core.cs.selector.ContextSelector;
 import pascal.taie.analysis.pta.core.heap.HeapModel;
 import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.analysis.pta.core.solver.Telemetry;
 import pascal.taie.analysis.pta.plugin.taint.TaintAnalysiss;
+import pascal.taie.analysis.pta.pts.MapBasedIndexer;
 import pascal.taie.analysis.pta.pts.PointsToSet;
 import pascal.taie.analysis.pta.pts.PointsToSetFactory;
 import pascal.taie.config.AnalysisOptions;
 import pascal.taie.ir.exp.InvokeExp;
 import pascal.taie.ir.exp.Var;
-import pascal.taie.ir.stmt.Copy;
 import pascal.taie.ir.stmt.Invoke;
 import pascal.taie.ir.stmt.LoadArray;
-import pascal.taie.ir.stmt.LoadField;
-import pascal.taie.ir.stmt.New;
 import pascal.taie.ir.stmt.StmtVisitor;
 import pascal.taie.ir.stmt.StoreArray;
-import pascal.taie.ir.stmt.StoreField;
 import pascal.taie.language.classes.JField;
 import pascal.taie.language.classes.JMethod;
 import pascal.taie.language.type.Type;
@@ -87,12 +85,24 @@ public class Solver {
 
     private PointerFlowGraph pointerFlowGraph;
 
+    /**
+     * Factory of the points-to sets of this run.
+     */
+    private PointsToSetFactory ptsFactory;
+
     private WorkList workList;
 
+    private final Map<JMethod, ConstraintTemplate> templates = Maps.newMap();
+
     private TaintAnalysiss taintAnalysis;
 
     private PointerAnalysisResult result;
 
+    /**
+     * Telemetry of this run, or null if it is disabled.
+     */
+    private Telemetry telemetry;
+
     private MultiMap<Pointer, Pair<Pointer, Type>> taintFlowGraph;
     Solver(AnalysisOptions options, HeapModel heapModel,
            ContextSelector contextSelector) {
@@ -116,16 +126,33 @@ public class Solver {
     void solve() {
         initialize();
         analyze();
+        logger.info("Work list entries: {} added, {} propagated after coalescing",
+                workList.getNumberOfAddedEntries(),
+                workList.getNumberOfPolledEntries());
+        if (telemetry != null) {
+            reportTelemetry();
+        }
         taintAnalysis.onFinish();
     }
 
+    private void reportTelemetry() {
+        callGraph.reachableMethods().forEach(csMethod ->
+                telemetry.onReachableMethod(csMethod.getMethod()));
+        callGraph.edges().forEach(edge ->
+                telemetry.onCallEdge(edge.getCallSite().getCallSite()));
+        telemetry.writeReport(p -> ((Pointer) p).getPointsToSet().size());
+    }
+
     private void initialize() {
+        // number the objects of this run only
+        ptsFactory = new PointsToSetFactory(new MapBasedIndexer<>(), false);
         csManager = new MapBasedCSManager();
         callGraph = new CSCallGraph(csManager);
         pointerFlowGraph = new PointerFlowGraph();
-        workList = new WorkList();
+        workList = new WorkList(ptsFactory);
         taintAnalysis = new TaintAnalysiss(this);
         taintFlowGraph = Maps.newMultiMap();
+        telemetry = Telemetry.of(options);
         // process program entry, i.e., main method
         Context defContext = contextSelector.getEmptyContext();
         JMethod main = World.get().getMainMethod();
@@ -141,15 +168,52 @@ public class Solver {
         // TODO - finish me
         if(!callGraph.contains(csMethod)){
             callGraph.addReachableMethod(csMethod);
-            csMethod.getMethod().getIR().getStmts().forEach(stmt->{
-                        stmt.accept(new StmtProcessor(csMethod));
-                    }
-            );
+            instantiate(csMethod);
         }
     }
 
     /**
-     * Processes the statements in context-sensitive new reachable methods.
+     * Instantiates the constraint template of the method in the context
+     * of csMethod. The template is compiled when the method is first
+     * reached, and reused for its other contexts.
+     */
+    private void instantiate(CSMethod csMethod) {
+        ConstraintTemplate template = templates.computeIfAbsent(
+                csMethod.getMethod(), ConstraintTemplate::compile);
+        Context context = csMethod.getContext();
+        CSVar[] csVars = new CSVar[template.vars.length];
+        for(int i = 0; i < csVars.length; ++i){
+            csVars[i] = csManager.getCSVar(context, template.vars[i]);
+        }
+        for(int i = 0; i < template.allocs.length; ++i){
+            Obj obj = heapModel.getObj(template.allocs[i]);
+            Context heapContext = contextSelector.selectHeapContext(csMethod, obj);
+            workList.addEntry(csVars[template.allocSlots[i]],
+                    ptsFactory.newPointsToSet(csManager.getCSObj(heapContext, obj)));
+        }
+        for(int i = 0; i < template.copySources.length; ++i){
+            addPFGEdge(csVars[template.copySources[i]], csVars[template.copyTargets[i]]);
+        }
+        for(int i = 0; i < template.staticStoreFields.length; ++i){
+            // T.f = y
+            addPFGEdge(csVars[template.staticStoreSlots[i]],
+                    csManager.getStaticField(template.staticStoreFields[i]));
+        }
+        for(int i = 0; i < template.staticLoadFields.length; ++i){
+            // y = T.f
+            addPFGEdge(csManager.getStaticField(template.staticLoadFields[i]),
+                    csVars[template.staticLoadSlots[i]]);
+        }
+        if(template.staticInvokes.length > 0){
+            StmtProcessor stmtProcessor = new StmtProcessor(csMethod);
+            for(Invoke invoke: template.staticInvokes){
+                stmtProcessor.visit(invoke);
+            }
+        }
+    }
+
+    /**
+     * Processes the static invocations in context-sensitive new reachable methods.
      */
     private class StmtProcessor implements StmtVisitor<Void> {
 
@@ -164,46 +228,7 @@ public class Solver {
 
         // TODO - if you choose to implement addReachable()
         //  via visitor pattern, then finish me
-        @Override
-        public Void visit(New stmt){
-            Pointer pointer = csManager.getCSVar(this.context, stmt.getLValue());
-            Obj obj = heapModel.getObj(stmt);
-            Context heapContext = contextSelector.selectHeapContext(csMethod, obj);
-            PointsToSet pointsToSet = PointsToSetFactory.make(csManager.getCSObj(heapContext, obj));
-            workList.addEntry(pointer, pointsToSet);
-            return null;
-        }
-
-        @Override
-        public Void visit(Copy stmt){
-            Pointer src = csManager.getCSVar(context, stmt.getRValue());
-            Pointer dst = csManager.getCSVar(context, stmt.getLValue());
-            addPFGEdge(src, dst);
-            return null;
-        }
-
-        @Override
-        public Void visit(StoreField stmt){
-            // T.f = y
-            // y -> T.f
-            if(stmt.isStatic()){
-                Pointer src = csManager.getCSVar(context, stmt.getRValue());
-                Pointer dst = csManager.getStaticField(stmt.getFieldRef().resolve());
-                addPFGEdge(src, dst);
-            }
-            return null;
-        }
-
-        @Override
-        public Void visit(LoadField stmt){
-            if(stmt.isStatic()){
-                Pointer src = csManager.getStaticField(stmt.getFieldRef().resolve());
-                Pointer dst = csManager.getCSVar(context, stmt.getLValue());
-                addPFGEdge(src, dst);
-            }
-            return null;
-        }
-
+        // other statements are compiled into ConstraintTemplates
         @Override
         public Void visit(Invoke stmt){
             if(stmt.isStatic()){
@@ -246,7 +271,7 @@ public class Solver {
                         if(type != null){
                             Pointer dst = csManager.getCSVar(context, stmt.getResult());
 
-                            PointsToSet pts = PointsToSetFactory.make(taintAnalysis.getTaintObj(stmt, type));
+                            PointsToSet pts = ptsFactory.newPointsToSet(taintAnalysis.getTaintObj(stmt, type));
                             workList.addEntry(dst, pts);
                         }
 
@@ -273,7 +298,7 @@ public class Solver {
     private void addTFGEdge(Pointer source, Pointer target, Type type){
         if(taintFlowGraph.put(source, new Pair<>(target, type))){
             PointsToSet pts = source.getPointsToSet();
-            PointsToSet taintSet = PointsToSetFactory.make();
+            PointsToSet taintSet = ptsFactory.newPointsToSet();
             for(CSObj csObj: pts){
                 if(taintAnalysis.isTaint(csObj)){
 //                    System.out.println("here");
@@ -338,23 +363,26 @@ public class Solver {
      */
     private PointsToSet propagate(Pointer pointer, PointsToSet pointsToSet) {
         // TODO - finish me
-        PointsToSet delta = PointsToSetFactory.make();
-
-        for(CSObj o: pointsToSet){
-            if(pointer.getPointsToSet().addObject(o)){
-                delta.addObject(o);
-                // propagate taint objs
-                if(taintAnalysis.isTaint(o)){
-                    // real taint obj
-                    taintFlowGraph.get(pointer).forEach(elem -> {
-                        // taint flow from pointer to elem
-                        Invoke srcCall = taintAnalysis.getSource(o);
-                        // change type
-
-                        CSObj taintObj = taintAnalysis.getTaintObj(srcCall, elem.second());
-                        workList.addEntry(elem.first(), PointsToSetFactory.make(taintObj));
-                    });
-                }
+        PointsToSet delta = ptsFactory.addAllDiff(
+                pointer.getPointsToSet(), pointsToSet);
+        if(telemetry != null){
+            telemetry.onPropagate(pointer, pointer instanceof CSVar csVar ?
+                    csVar.getVar().getMethod() : null, delta.size());
+            telemetry.onStep(workList::size, () -> callGraph.reachableMethods().count());
+        }
+
+        for(CSObj o: delta){
+            // propagate taint objs
+            if(taintAnalysis.isTaint(o)){
+                // real taint obj
+                taintFlowGraph.get(pointer).forEach(elem -> {
+                    // taint flow from pointer to elem
+                    Invoke srcCall = taintAnalysis.getSource(o);
+                    // change type
+
+                    CSObj taintObj = taintAnalysis.getTaintObj(srcCall, elem.second());
+                    workList.addEntry(elem.first(), ptsFactory.newPointsToSet(taintObj));
+                });
             }
         }
         // check if delta is empty now
@@ -384,7 +412,7 @@ public class Solver {
             Context calleeContext = contextSelector.selectContext(csCallSite, recvObj, callee);
             // add this to WL
             workList.addEntry(csManager.getCSVar(calleeContext, callee.getIR().getThis()),
-                    PointsToSetFactory.make(recvObj));
+                    ptsFactory.newPointsToSet(recvObj));
             // if not in call-graph
             CSMethod csMethod = csManager.getCSMethod(calleeContext, callee);
             if(callGraph.addEdge(new Edge<>(CallGraphs.getCallKind(invoke),
@@ -429,7 +457,7 @@ public class Solver {
                     Type type = taintAnalysis.getMethodTypeSource(callee);
                     if(type != null){
                         Pointer dst = csManager.getCSVar(calleeContext, invoke.getResult());
-                        PointsToSet pts = PointsToSetFactory.make(taintAnalysis.getTaintObj(invoke, type));
+                        PointsToSet pts = ptsFactory.newPointsToSet(taintAnalysis.getTaintObj(invoke, type));
                         workList.addEntry(dst, pts);
                     }
 
@@ -0,0 +1,185 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.pts;
+
+import pascal.taie.analysis.pta.core.cs.element.CSObj;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Points-to set that adapts its representation to its size: small sets
+ * are sorted arrays of object IDs, and large sets are compressed bitmaps
+ * over the IDs. The IDs are dense numbers assigned to {@link CSObj}s by
+ * the {@link Indexer} of the factory of the set, which belongs to one
+ * solver run. A set made by {@link PointsToSetFactory#make()} has no
+ * factory until the first non-empty set is added to it by
+ * {@link #addAllDiff}, and takes the factory of that set.
+ * <p>
+ * If sharing is enabled, a set that is empty takes the contents of the
+ * first set added to it by sharing its payload, and the payload is copied
+ * when either set gets a new object. Thus the pointers along copy chains
+ * share one payload until their points-to sets diverge.
+ */
+public class AdaptivePointsToSet implements PointsToSet {
+
+    /**
+     * The factory of this set, or null if the set is unbound.
+     */
+    private PointsToSetFactory factory;
+
+    private HybridIdSet ids;
+
+    AdaptivePointsToSet(PointsToSetFactory factory) {
+        this(factory, new HybridIdSet());
+    }
+
+    private AdaptivePointsToSet(PointsToSetFactory factory, HybridIdSet ids) {
+        this.factory = factory;
+        this.ids = ids;
+    }
+
+    @Override
+    public boolean addObject(CSObj obj) {
+        if (factory == null) {
+            throw new IllegalStateException(
+                    "Cannot add " + obj + " to an unbound points-to set");
+        }
+        int id = getId(obj);
+        return !ids.contains(id) && mutableIds().add(id);
+    }
+
+    /**
+     * Adds all objects in given points-to set to this set.
+     *
+     * @return the objects that are newly added to this set.
+     */
+    public AdaptivePointsToSet addAllDiff(PointsToSet pts) {
+        if (pts.isEmpty()) {
+            return new AdaptivePointsToSet(factory);
+        }
+        if (factory == null && pts instanceof AdaptivePointsToSet other) {
+            factory = other.factory;
+        }
+        if (pts instanceof AdaptivePointsToSet other && other.factory == factory) {
+            if (factory.isSharing() && ids.isEmpty() && !other.isEmpty()) {
+                ids = other.ids.freeze();
+                return new AdaptivePointsToSet(factory, ids);
+            }
+            return new AdaptivePointsToSet(factory, mutableIds().addAllDiff(other.ids));
+        }
+        AdaptivePointsToSet diff = new AdaptivePointsToSet(factory);
+        for (CSObj obj : pts) {
+            if (addObject(obj)) {
+                diff.addObject(obj);
+            }
+        }
+        return diff;
+    }
+
+    /**
+     * Replaces the payload of this set by the equal one in pool.
+     */
+    void intern(PointsToSetPool pool) {
+        ids = pool.intern(ids);
+    }
+
+    HybridIdSet getPayload() {
+        return ids;
+    }
+
+    /**
+     * @return the payload of this set, which is copied first if it is
+     * shared.
+     */
+    private HybridIdSet mutableIds() {
+        if (ids.isFrozen()) {
+            ids = ids.copy();
+        }
+        return ids;
+    }
+
+    @Override
+    public boolean contains(CSObj obj) {
+        return factory != null && ids.contains(getId(obj));
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return ids.isEmpty();
+    }
+
+    @Override
+    public int size() {
+        return ids.size();
+    }
+
+    @Override
+    public Set<CSObj> getObjects() {
+        Set<CSObj> objects = new LinkedHashSet<>();
+        forEach(objects::add);
+        return Collections.unmodifiableSet(objects);
+    }
+
+    @Override
+    public Stream<CSObj> objects() {
+        return StreamSupport.stream(Spliterators.spliterator(
+                iterator(), size(), Spliterator.DISTINCT), false);
+    }
+
+    @Override
+    public Iterator<CSObj> iterator() {
+        PrimitiveIterator.OfInt it = ids.iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public CSObj next() {
+                return getObj(it.nextInt());
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return getObjects().toString();
+    }
+
+    private int getId(CSObj obj) {
+        return factory.getIndexer().getIndex(obj);
+    }
+
+    private CSObj getObj(int id) {
+        return factory.getIndexer().getObject(id);
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.cs;
+
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Copy;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.LoadField;
+import pascal.taie.ir.stmt.New;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.ir.stmt.StoreField;
+import pascal.taie.language.classes.JField;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.util.collection.Maps;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Context-independent constraints of a method, i.e., the ones generated
+ * from its statements when the method becomes reachable in a context:
+ * allocations, copies, static field stores/loads, and static invocations.
+ * <p>
+ * The template is compiled once per method, and refers to variables by
+ * slots, i.e., indexes in {@link #vars}. Instantiating it in a context
+ * only needs one context-sensitive variable per slot, without visiting
+ * the IR again.
+ */
+final class ConstraintTemplate {
+
+    /**
+     * Variables used by the constraints, indexed by slots.
+     */
+    final Var[] vars;
+
+    final New[] allocs;
+
+    /**
+     * Slots of the left-hand side variables of {@link #allocs}.
+     */
+    final int[] allocSlots;
+
+    final int[] copySources;
+
+    final int[] copyTargets;
+
+    final JField[] staticStoreFields;
+
+    /**
+     * Slots of the stored variables of {@link #staticStoreFields}.
+     */
+    final int[] staticStoreSlots;
+
+    final JField[] staticLoadFields;
+
+    /**
+     * Slots of the loading variables of {@link #staticLoadFields}.
+     */
+    final int[] staticLoadSlots;
+
+    final Invoke[] staticInvokes;
+
+    private ConstraintTemplate(Builder builder) {
+        vars = builder.vars.toArray(new Var[0]);
+        allocs = builder.allocs.toArray(new New[0]);
+        allocSlots = toArray(builder.allocSlots);
+        copySources = toArray(builder.copySources);
+        copyTargets = toArray(builder.copyTargets);
+        staticStoreFields = builder.staticStoreFields.toArray(new JField[0]);
+        staticStoreSlots = toArray(builder.staticStoreSlots);
+        staticLoadFields = builder.staticLoadFields.toArray(new JField[0]);
+        staticLoadSlots = toArray(builder.staticLoadSlots);
+        staticInvokes = builder.staticInvokes.toArray(new Invoke[0]);
+    }
+
+    /**
+     * Compiles the constraint template of given method.
+     */
+    static ConstraintTemplate compile(JMethod method) {
+        Builder builder = new Builder();
+        for (Stmt stmt : method.getIR().getStmts()) {
+            if (stmt instanceof New alloc) {
+                builder.allocs.add(alloc);
+                builder.allocSlots.add(builder.slotOf(alloc.getLValue()));
+            } else if (stmt instanceof Copy copy) {
+                builder.copySources.add(builder.slotOf(copy.getRValue()));
+                builder.copyTargets.add(builder.slotOf(copy.getLValue()));
+            } else if (stmt instanceof StoreField store && store.isStatic()) {
+                builder.staticStoreFields.add(store.getFieldRef().resolve());
+                builder.staticStoreSlots.add(builder.slotOf(store.getRValue()));
+            } else if (stmt instanceof LoadField load && load.isStatic()) {
+                builder.staticLoadFields.add(load.getFieldRef().resolve());
+                builder.staticLoadSlots.add(builder.slotOf(load.getLValue()));
+            } else if (stmt instanceof Invoke invoke && invoke.isStatic()) {
+                builder.staticInvokes.add(invoke);
+            }
+        }
+        return new ConstraintTemplate(builder);
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        return list.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static class Builder {
+
+        private final List<Var> vars = new ArrayList<>();
+
+        private final Map<Var, Integer> slots = Maps.newMap();
+
+        private final List<New> allocs = new ArrayList<>();
+
+        private final List<Integer> allocSlots = new ArrayList<>();
+
+        private final List<Integer> copySources = new ArrayList<>();
+
+        private final List<Integer> copyTargets = new ArrayList<>();
+
+        private final List<JField> staticStoreFields = new ArrayList<>();
+
+        private final List<Integer> staticStoreSlots = new ArrayList<>();
+
+        private final List<JField> staticLoadFields = new ArrayList<>();
+
+        private final List<Integer> staticLoadSlots = new ArrayList<>();
+
+        private final List<Invoke> staticInvokes = new ArrayList<>();
+
+        private int slotOf(Var var) {
+            return slots.computeIfAbsent(var, v -> {
+                vars.add(v);
+                return vars.size() - 1;
+            });
+        }
+    }
+}
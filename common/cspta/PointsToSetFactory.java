@@ -0,0 +1,100 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.pts;
+
+import pascal.taie.analysis.pta.core.cs.element.CSObj;
+
+/**
+ * Creates points-to sets, which are {@link AdaptivePointsToSet}s.
+ * <p>
+ * Each solver run creates its own factory, and the sets created by it
+ * number their objects by the indexer of that run. A set keeps its
+ * factory, so the numbering is released together with the sets of the
+ * run. The sets of pointers are created by {@link #make()} before any
+ * run owns them, and are bound to the factory of the first non-empty
+ * set added to them.
+ */
+public class PointsToSetFactory {
+
+    private final Indexer<CSObj> indexer;
+
+    private final boolean sharing;
+
+    /**
+     * @param sharing whether equal points-to sets share their payloads,
+     *                with copy-on-write.
+     */
+    public PointsToSetFactory(Indexer<CSObj> indexer, boolean sharing) {
+        this.indexer = indexer;
+        this.sharing = sharing;
+    }
+
+    /**
+     * @return an empty points-to set that is not bound to any factory yet.
+     */
+    public static PointsToSet make() {
+        return new AdaptivePointsToSet(null);
+    }
+
+    /**
+     * @return an empty points-to set of this factory.
+     */
+    public PointsToSet newPointsToSet() {
+        return new AdaptivePointsToSet(this);
+    }
+
+    /**
+     * @return a points-to set of this factory that contains given object.
+     */
+    public PointsToSet newPointsToSet(CSObj obj) {
+        PointsToSet set = newPointsToSet();
+        set.addObject(obj);
+        return set;
+    }
+
+    /**
+     * Adds all objects in source to target.
+     *
+     * @return the objects that are newly added to target.
+     */
+    public PointsToSet addAllDiff(PointsToSet target, PointsToSet source) {
+        if (target instanceof AdaptivePointsToSet adaptive) {
+            return adaptive.addAllDiff(source);
+        }
+        PointsToSet diff = newPointsToSet();
+        for (CSObj obj : source) {
+            if (target.addObject(obj)) {
+                diff.addObject(obj);
+            }
+        }
+        return diff;
+    }
+
+    Indexer<CSObj> getIndexer() {
+        return indexer;
+    }
+
+    boolean isSharing() {
+        return sharing;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.pts;
+
+import pascal.taie.util.collection.Maps;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Pool of points-to set payloads, which makes the equal points-to sets
+ * interned by it share one immutable payload, i.e., hash-consing.
+ */
+public class PointsToSetPool {
+
+    private final Map<HybridIdSet, HybridIdSet> payloads = Maps.newMap();
+
+    /**
+     * Payloads of the interned sets before interning.
+     */
+    private final Set<HybridIdSet> originalPayloads =
+            Collections.newSetFromMap(new IdentityHashMap<>());
+
+    private int nSets;
+
+    /**
+     * Makes given points-to set share the payload of the equal sets
+     * interned before. Empty sets are ignored.
+     */
+    public void intern(PointsToSet pts) {
+        if (pts instanceof AdaptivePointsToSet adaptive && !adaptive.isEmpty()) {
+            ++nSets;
+            originalPayloads.add(adaptive.getPayload());
+            adaptive.intern(this);
+        }
+    }
+
+    HybridIdSet intern(HybridIdSet ids) {
+        HybridIdSet interned = payloads.putIfAbsent(ids.freeze(), ids);
+        return interned != null ? interned : ids;
+    }
+
+    /**
+     * @return the number of non-empty sets interned by this pool.
+     */
+    public int getNumberOfSets() {
+        return nSets;
+    }
+
+    /**
+     * @return the number of distinct payloads of the interned sets before
+     * interning, i.e., after the sharing during solving.
+     */
+    public int getNumberOfOriginalPayloads() {
+        return originalPayloads.size();
+    }
+
+    /**
+     * @return the number of distinct payloads after interning.
+     */
+    public int getNumberOfPayloads() {
+        return payloads.size();
+    }
+
+    /**
+     * @return the ratio of interned sets to their distinct payloads.
+     */
+    public double getDedupRatio() {
+        return payloads.isEmpty() ? 1.0 : (double) nSets / payloads.size();
+    }
+}
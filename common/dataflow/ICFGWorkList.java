@@ -0,0 +1,213 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.inter;
+
+import pascal.taie.analysis.graph.icfg.CallEdge;
+import pascal.taie.analysis.graph.icfg.ICFG;
+import pascal.taie.analysis.graph.icfg.ICFGEdge;
+import pascal.taie.analysis.graph.icfg.ReturnEdge;
+import pascal.taie.util.collection.Maps;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Work-list of ICFG nodes for inter-procedural data-flow analysis.
+ * <p>
+ * Each node is given an ID according to a global order: methods are
+ * ordered by reverse postorder of the call graph (callers before callees),
+ * and the nodes of each method are ordered by reverse postorder of its
+ * intra-procedural control flow. Pending nodes are kept in a bitmap over
+ * the IDs, so that a node is queued at most once, and the node with the
+ * smallest ID is always polled first. The bitmap is scanned from a cursor
+ * below which no node is pending, which moves back only when a node
+ * before it is added, so polling does not rescan the cleared prefix.
+ */
+class ICFGWorkList<Method, Node> {
+
+    private final List<Node> nodes;
+
+    private final Map<Node, Integer> ids;
+
+    private final BitSet pending;
+
+    /**
+     * No node whose ID is smaller than the cursor is pending.
+     */
+    private int cursor;
+
+    ICFGWorkList(ICFG<Method, Node> icfg) {
+        nodes = computeOrder(icfg);
+        ids = Maps.newMap(nodes.size());
+        for (int i = 0; i < nodes.size(); ++i) {
+            ids.put(nodes.get(i), i);
+        }
+        pending = new BitSet(nodes.size());
+    }
+
+    /**
+     * @return the ID of given node in the global order.
+     */
+    int getId(Node node) {
+        return ids.get(node);
+    }
+
+    /**
+     * @return the number of nodes covered by this work-list.
+     */
+    int getNumberOfNodes() {
+        return nodes.size();
+    }
+
+    /**
+     * Adds a node to the work-list.
+     *
+     * @return true if the node was not pending before.
+     */
+    boolean add(Node node) {
+        int id = ids.get(node);
+        if (pending.get(id)) {
+            return false;
+        }
+        pending.set(id);
+        if (id < cursor) {
+            cursor = id;
+        }
+        return true;
+    }
+
+    /**
+     * Adds all nodes of the ICFG to the work-list.
+     */
+    void addAll() {
+        pending.set(0, nodes.size());
+        cursor = 0;
+    }
+
+    /**
+     * Removes and returns the pending node that comes first in the global
+     * order, or null if the work-list is empty.
+     */
+    Node poll() {
+        int id = pending.nextSetBit(cursor);
+        if (id < 0) {
+            cursor = nodes.size();
+            return null;
+        }
+        pending.clear(id);
+        cursor = id + 1;
+        return nodes.get(id);
+    }
+
+    boolean isEmpty() {
+        return pending.isEmpty();
+    }
+
+    private static <Method, Node> List<Node> computeOrder(ICFG<Method, Node> icfg) {
+        // group the nodes by their containing methods
+        Map<Method, List<Node>> callSites = Maps.newMap();
+        for (Node node : icfg) {
+            if (icfg.isCallSite(node)) {
+                callSites.computeIfAbsent(icfg.getContainingMethodOf(node),
+                        m -> new ArrayList<>()).add(node);
+            }
+        }
+        // order methods by reverse postorder of the call graph
+        List<Method> methods = reversePostOrder(
+                icfg.entryMethods().toList(),
+                m -> callSites.getOrDefault(m, List.of())
+                        .stream()
+                        .flatMap(callSite -> icfg.getCalleesOf(callSite).stream())
+                        .toList());
+        // order nodes in each method by reverse postorder of its CFG
+        List<Node> order = new ArrayList<>(icfg.getNodes().size());
+        Set<Node> visited = Collections.newSetFromMap(Maps.newMap());
+        for (Method method : methods) {
+            for (Node node : reversePostOrder(
+                    List.of(icfg.getEntryOf(method)), n -> intraSuccsOf(icfg, n))) {
+                if (visited.add(node)) {
+                    order.add(node);
+                }
+            }
+        }
+        // append nodes that are not reachable from the entries
+        for (Node node : icfg) {
+            if (visited.add(node)) {
+                order.add(node);
+            }
+        }
+        return order;
+    }
+
+    private static <Method, Node> List<Node> intraSuccsOf(
+            ICFG<Method, Node> icfg, Node node) {
+        List<Node> succs = new ArrayList<>();
+        for (ICFGEdge<Node> edge : icfg.getOutEdgesOf(node)) {
+            if (!(edge instanceof CallEdge) && !(edge instanceof ReturnEdge)) {
+                succs.add(edge.getTarget());
+            }
+        }
+        return succs;
+    }
+
+    /**
+     * Computes reverse postorder of the graph reachable from given roots.
+     */
+    private static <N> List<N> reversePostOrder(
+            List<N> roots, Function<N, List<N>> succs) {
+        List<N> postOrder = new ArrayList<>();
+        Set<N> visited = Collections.newSetFromMap(Maps.newMap());
+        Deque<N> stack = new ArrayDeque<>();
+        Deque<Iterator<N>> iters = new ArrayDeque<>();
+        for (N root : roots) {
+            if (!visited.add(root)) {
+                continue;
+            }
+            stack.push(root);
+            iters.push(succs.apply(root).iterator());
+            while (!stack.isEmpty()) {
+                Iterator<N> it = iters.peek();
+                if (it.hasNext()) {
+                    N succ = it.next();
+                    if (visited.add(succ)) {
+                        stack.push(succ);
+                        iters.push(succs.apply(succ).iterator());
+                    }
+                } else {
+                    postOrder.add(stack.pop());
+                    iters.pop();
+                }
+            }
+        }
+        Collections.reverse(postOrder);
+        return postOrder;
+    }
+}
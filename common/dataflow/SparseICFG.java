@@ -0,0 +1,158 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.inter;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pascal.taie.analysis.graph.icfg.ICFG;
+import pascal.taie.analysis.graph.icfg.ICFGEdge;
+import pascal.taie.analysis.graph.icfg.NormalEdge;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Sets;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Sparse view of an ICFG, which bypasses the nodes that are irrelevant
+ * to the analysis.
+ * <p>
+ * A node is bypassed if it is not relevant, is neither a call site nor
+ * the entry/exit of a method, and has exactly one in-edge, which is a
+ * {@link NormalEdge}. Such nodes form chains hanging off kept nodes, and
+ * for an analysis whose irrelevant nodes and normal edges are identity
+ * transfers (e.g., constant propagation), the facts of a bypassed node
+ * equal the OUT fact of the kept node at the head of its chain, which is
+ * called its representative. Facts are thus propagated directly between
+ * kept nodes.
+ */
+class SparseICFG<Method, Node> {
+
+    private static final Logger logger = LogManager.getLogger(SparseICFG.class);
+
+    private final ICFG<Method, Node> icfg;
+
+    /**
+     * Map from each bypassed node to its representative.
+     */
+    private final Map<Node, Node> representatives = Maps.newMap();
+
+    /**
+     * Map from each kept node to the kept nodes reachable from it
+     * through bypassed nodes.
+     */
+    private final Map<Node, Set<Node>> succs = Maps.newMap();
+
+    SparseICFG(ICFG<Method, Node> icfg, Predicate<Node> isRelevant) {
+        this.icfg = icfg;
+        Set<Node> bypassed = Sets.newSet();
+        for (Node node : icfg) {
+            if (canBypass(node, isRelevant)) {
+                bypassed.add(node);
+            }
+        }
+        // computeRepresentative() removes the nodes on cycles from bypassed
+        for (Node node : List.copyOf(bypassed)) {
+            if (bypassed.contains(node)) {
+                computeRepresentative(node, bypassed);
+            }
+        }
+        logger.info("Sparse ICFG bypasses {} of {} nodes",
+                representatives.size(), icfg.getNodes().size());
+    }
+
+    private boolean canBypass(Node node, Predicate<Node> isRelevant) {
+        if (isRelevant.test(node) || icfg.isCallSite(node)) {
+            return false;
+        }
+        Method method = icfg.getContainingMethodOf(node);
+        if (node.equals(icfg.getEntryOf(method))
+                || node.equals(icfg.getExitOf(method))) {
+            return false;
+        }
+        Set<ICFGEdge<Node>> inEdges = icfg.getInEdgesOf(node);
+        return inEdges.size() == 1
+                && inEdges.iterator().next() instanceof NormalEdge;
+    }
+
+    /**
+     * Walks up the chain of given bypassed node to find its representative.
+     * A cycle of bypassed nodes is unreachable from any kept node, and
+     * its nodes are kept.
+     */
+    private void computeRepresentative(Node node, Set<Node> bypassed) {
+        List<Node> chain = new ArrayList<>();
+        Set<Node> onChain = Sets.newSet();
+        Node current = node;
+        while (bypassed.contains(current)
+                && !representatives.containsKey(current)) {
+            if (!onChain.add(current)) {
+                // cycle: keep all nodes on it
+                chain.forEach(bypassed::remove);
+                return;
+            }
+            chain.add(current);
+            current = icfg.getPredsOf(current).iterator().next();
+        }
+        // current is either kept or has a kept representative
+        Node rep = representatives.getOrDefault(current, current);
+        chain.forEach(n -> representatives.put(n, rep));
+    }
+
+    /**
+     * @return true if the node is kept in the sparse view.
+     */
+    boolean isKept(Node node) {
+        return !representatives.containsKey(node);
+    }
+
+    /**
+     * @return the kept node whose OUT fact holds the facts of given node.
+     * For a kept node, this is the node itself.
+     */
+    Node getRepresentative(Node node) {
+        return representatives.getOrDefault(node, node);
+    }
+
+    /**
+     * @return the kept successors of given kept node in the sparse view.
+     */
+    Set<Node> getSuccsOf(Node node) {
+        return succs.computeIfAbsent(node, n -> {
+            Set<Node> result = Sets.newSet();
+            List<Node> stack = new ArrayList<>(icfg.getSuccsOf(n));
+            while (!stack.isEmpty()) {
+                Node succ = stack.remove(stack.size() - 1);
+                if (isKept(succ)) {
+                    result.add(succ);
+                } else {
+                    stack.addAll(icfg.getSuccsOf(succ));
+                }
+            }
+            return result;
+        });
+    }
+}
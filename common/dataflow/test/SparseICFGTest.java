@@ -0,0 +1,105 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.inter;
+
+import org.junit.Test;
+import pascal.taie.analysis.graph.icfg.ICFG;
+import pascal.taie.analysis.graph.icfg.ICFGEdge;
+import pascal.taie.analysis.graph.icfg.NormalEdge;
+
+import java.lang.reflect.Proxy;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks which nodes {@link SparseICFG} bypasses.
+ */
+public class SparseICFGTest {
+
+    private static final String METHOD = "m";
+
+    private static final String ENTRY = "entry";
+
+    private static final String EXIT = "exit";
+
+    /**
+     * Method entry -> a -> b -> exit, where b is irrelevant, plus a cycle
+     * of irrelevant nodes l1 -> l2 -> l3 -> l1 that is unreachable from
+     * the entry, like an infinite loop without relevant statements that
+     * is only reachable through exceptional edges.
+     */
+    @Test
+    public void testUnreachableCycle() {
+        Map<String, Set<String>> succs = new LinkedHashMap<>();
+        succs.put(ENTRY, Set.of("a"));
+        succs.put("a", Set.of("b"));
+        succs.put("b", Set.of(EXIT));
+        succs.put("l1", Set.of("l2"));
+        succs.put("l2", Set.of("l3"));
+        succs.put("l3", Set.of("l1"));
+        succs.put(EXIT, Set.of());
+        SparseICFG<String, String> sparse = new SparseICFG<>(
+                newICFG(succs), "a"::equals);
+        assertEquals("a", sparse.getRepresentative("b"));
+        assertEquals(Set.of(EXIT), sparse.getSuccsOf("a"));
+        for (String node : List.of("l1", "l2", "l3")) {
+            assertTrue(node, sparse.isKept(node));
+        }
+    }
+
+    /**
+     * @return an ICFG of one method with given successors of each node,
+     * which supports the queries of {@link SparseICFG}.
+     */
+    @SuppressWarnings("unchecked")
+    private static ICFG<String, String> newICFG(Map<String, Set<String>> succs) {
+        Map<String, Set<ICFGEdge<String>>> inEdges = new LinkedHashMap<>();
+        succs.keySet().forEach(node -> inEdges.put(node, new LinkedHashSet<>()));
+        succs.forEach((source, targets) -> targets.forEach(target ->
+                inEdges.get(target).add(new NormalEdge<>(source, target))));
+        return (ICFG<String, String>) Proxy.newProxyInstance(
+                ICFG.class.getClassLoader(), new Class<?>[]{ICFG.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "iterator" -> succs.keySet().iterator();
+                    case "getNodes" -> succs.keySet();
+                    case "isCallSite" -> false;
+                    case "getContainingMethodOf" -> METHOD;
+                    case "getEntryOf" -> ENTRY;
+                    case "getExitOf" -> EXIT;
+                    case "getInEdgesOf" -> inEdges.get(args[0]);
+                    case "getSuccsOf" -> succs.get(args[0]);
+                    case "getPredsOf" -> inEdges.get(args[0]).stream()
+                            .map(ICFGEdge::getSource)
+                            .collect(Collectors.toSet());
+                    default -> throw new UnsupportedOperationException(
+                            method.getName());
+                });
+    }
+}
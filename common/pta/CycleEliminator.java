@@ -0,0 +1,317 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.core.solver;
+
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.MultiMap;
+import pascal.taie.util.collection.Pair;
+import pascal.taie.util.collection.Sets;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Online cycle elimination for the pointer flow graph (PFG).
+ * <p>
+ * The pointers in a PFG cycle always have the same points-to set at the
+ * fixed point, so they can be merged into one node. This class maintains
+ * the merged view of the PFG with a union-find structure: each pointer
+ * belongs to a node, which is represented by one of its pointers, and the
+ * successors of a node are the representatives of the successors of all
+ * its pointers. Cycles are detected lazily: the solver asks for a cycle
+ * through an edge when propagation along the edge does not change the
+ * points-to set of its target, and each edge is checked at most once.
+ * Merging the points-to sets of the pointers is left to the solver.
+ * <p>
+ * The successor representatives of each node are computed once and
+ * cached until the node gets a new edge or any nodes are merged.
+ *
+ * @param <P> type of pointers
+ */
+public class CycleEliminator<P> {
+
+    private final Map<P, P> parents = Maps.newMap();
+
+    /**
+     * Successors of each representative, which may be merged pointers.
+     */
+    private final MultiMap<P, P> succs = Maps.newMultiMap();
+
+    /**
+     * Cached representatives of the successors of each representative,
+     * which are used once any nodes have been merged.
+     */
+    private final Map<P, Set<P>> succReps = Maps.newMap();
+
+    /**
+     * Merged pointers of each representative, excluding itself.
+     */
+    private final Map<P, List<P>> members = Maps.newMap();
+
+    private final Set<Pair<P, P>> checkedEdges = Sets.newSet();
+
+    /**
+     * Pointers that have PFG edges.
+     */
+    private final Set<P> nodes = Sets.newSet();
+
+    private int nMerged;
+
+    /**
+     * @return the representative of given pointer.
+     */
+    public P find(P pointer) {
+        P rep = pointer;
+        P parent;
+        while ((parent = parents.get(rep)) != null) {
+            rep = parent;
+        }
+        // path compression
+        while (pointer != rep) {
+            P next = parents.put(pointer, rep);
+            pointer = next;
+        }
+        return rep;
+    }
+
+    /**
+     * Adds a PFG edge "source -> target".
+     */
+    public void addEdge(P source, P target) {
+        nodes.add(source);
+        nodes.add(target);
+        P rep = find(source);
+        if (succs.put(rep, target)) {
+            succReps.remove(rep);
+        }
+    }
+
+    /**
+     * @return the representatives of the successors of given representative.
+     */
+    public Set<P> getSuccsOf(P rep) {
+        Set<P> raw = succs.get(rep);
+        if (nMerged == 0) {
+            return raw;
+        }
+        return succReps.computeIfAbsent(rep, r -> {
+            Set<P> result = Sets.newSet(raw.size());
+            for (P succ : raw) {
+                P succRep = find(succ);
+                if (succRep != r) {
+                    result.add(succRep);
+                }
+            }
+            return result;
+        });
+    }
+
+    /**
+     * @return the pointers represented by given representative,
+     * including itself.
+     */
+    public List<P> getMembersOf(P rep) {
+        List<P> merged = members.get(rep);
+        if (merged == null) {
+            return List.of(rep);
+        }
+        List<P> result = new ArrayList<>(merged.size() + 1);
+        result.add(rep);
+        result.addAll(merged);
+        return result;
+    }
+
+    /**
+     * @return true if the edge between two representatives has been
+     * checked before.
+     */
+    public boolean isChecked(P source, P target) {
+        return checkedEdges.contains(new Pair<>(source, target));
+    }
+
+    /**
+     * Marks the edge between two representatives as checked.
+     *
+     * @return true if the edge has not been checked before.
+     */
+    public boolean markChecked(P source, P target) {
+        return checkedEdges.add(new Pair<>(source, target));
+    }
+
+    /**
+     * Finds the cycle through edge "source -> target", where both are
+     * representatives.
+     *
+     * @return the representatives on the strongly connected component
+     * that contains the edge, or an empty list if there is no such cycle.
+     */
+    public List<P> findCycle(P source, P target) {
+        List<P> result = new ArrayList<>();
+        // stops when the component of target is found
+        new Tarjan().run(target, scc -> {
+            if (scc.contains(target)) {
+                if (scc.contains(source)) {
+                    result.addAll(scc);
+                }
+                return true;
+            }
+            return false;
+        });
+        return result;
+    }
+
+    /**
+     * Computes the strongly connected components of the merged view of
+     * the PFG.
+     *
+     * @return the components in reverse topological order.
+     */
+    public List<List<P>> computeSCCs() {
+        List<List<P>> sccs = new ArrayList<>();
+        Tarjan tarjan = new Tarjan();
+        for (P node : nodes) {
+            tarjan.run(find(node), scc -> {
+                sccs.add(scc);
+                return false;
+            });
+        }
+        return sccs;
+    }
+
+    /**
+     * Iterative Tarjan's algorithm over the merged view of the PFG.
+     */
+    private class Tarjan {
+
+        private final Map<P, Integer> indexes = Maps.newMap();
+
+        private final Map<P, Integer> lowLinks = Maps.newMap();
+
+        private final Set<P> onStack = Sets.newSet();
+
+        private final Deque<P> stack = new ArrayDeque<>();
+
+        private final Deque<P> callStack = new ArrayDeque<>();
+
+        private final Deque<Iterator<P>> iters = new ArrayDeque<>();
+
+        /**
+         * Visits the nodes reachable from root that have not been visited,
+         * and passes each found component to onSCC, which returns true
+         * to stop the traversal.
+         */
+        private void run(P root, Predicate<List<P>> onSCC) {
+            if (indexes.containsKey(root)) {
+                return;
+            }
+            visit(root);
+            while (!callStack.isEmpty()) {
+                P node = callStack.peek();
+                Iterator<P> it = iters.peek();
+                if (it.hasNext()) {
+                    P succ = it.next();
+                    if (!indexes.containsKey(succ)) {
+                        visit(succ);
+                    } else if (onStack.contains(succ)) {
+                        lowLinks.put(node, Math.min(lowLinks.get(node), indexes.get(succ)));
+                    }
+                } else {
+                    callStack.pop();
+                    iters.pop();
+                    if (!callStack.isEmpty()) {
+                        P caller = callStack.peek();
+                        lowLinks.put(caller, Math.min(lowLinks.get(caller), lowLinks.get(node)));
+                    }
+                    if (lowLinks.get(node).equals(indexes.get(node))) {
+                        List<P> scc = new ArrayList<>();
+                        P p;
+                        do {
+                            p = stack.pop();
+                            onStack.remove(p);
+                            scc.add(p);
+                        } while (p != node);
+                        if (onSCC.test(scc)) {
+                            return;
+                        }
+                    }
+                }
+            }
+        }
+
+        private void visit(P node) {
+            int index = indexes.size();
+            indexes.put(node, index);
+            lowLinks.put(node, index);
+            stack.push(node);
+            onStack.add(node);
+            callStack.push(node);
+            iters.push(getSuccsOf(node).iterator());
+        }
+    }
+
+    /**
+     * Merges the nodes of given representatives into the node of rep.
+     */
+    public void merge(List<P> reps, P rep) {
+        List<P> repMembers = members.computeIfAbsent(rep, r -> new ArrayList<>());
+        for (P p : reps) {
+            if (p == rep) {
+                continue;
+            }
+            parents.put(p, rep);
+            repMembers.add(p);
+            List<P> merged = members.remove(p);
+            if (merged != null) {
+                repMembers.addAll(merged);
+            }
+            for (P succ : succs.get(p)) {
+                succs.put(rep, succ);
+            }
+            succs.removeAll(p);
+            ++nMerged;
+        }
+        // the successors of any node may have new representatives
+        succReps.clear();
+    }
+
+    /**
+     * Applies given action to each merged pointer and its representative.
+     */
+    public void forEachMerged(BiConsumer<P, P> action) {
+        members.forEach((rep, merged) -> merged.forEach(p -> action.accept(p, rep)));
+    }
+
+    /**
+     * @return the number of pointers merged into other ones.
+     */
+    public int getNumberOfMerged() {
+        return nMerged;
+    }
+}
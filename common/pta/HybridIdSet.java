@@ -0,0 +1,364 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.pts;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Set of non-negative int IDs with an adaptive representation.
+ * <p>
+ * A small set stores its IDs inline in a sorted array. Once it grows
+ * beyond {@link #SMALL_CAPACITY}, it switches to a compressed bitmap,
+ * which only stores the non-zero 64-bit words of the bitmap together
+ * with their sorted word indexes. Bulk union of two bitmaps is then a
+ * linear merge of their words.
+ * <p>
+ * A set can be frozen, after which it is immutable and can be shared
+ * by multiple points-to sets. Frozen sets are compared by their IDs.
+ */
+public final class HybridIdSet {
+
+    static final int SMALL_CAPACITY = 16;
+
+    private static final int[] EMPTY_INTS = {};
+
+    private static final long[] EMPTY_LONGS = {};
+
+    /**
+     * Number of IDs in this set.
+     */
+    private int size;
+
+    /**
+     * Sorted IDs of a small set, or null if this set is a bitmap.
+     */
+    private int[] elems = EMPTY_INTS;
+
+    /**
+     * Sorted indexes of the non-zero words of the bitmap.
+     */
+    private int[] keys;
+
+    /**
+     * Non-zero words of the bitmap, parallel to {@link #keys}.
+     */
+    private long[] words;
+
+    /**
+     * Number of non-zero words of the bitmap.
+     */
+    private int nWords;
+
+    private boolean frozen;
+
+    /**
+     * Hash code of a frozen set, or 0 if it is not computed yet.
+     */
+    private int hash;
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(int id) {
+        if (elems != null) {
+            return Arrays.binarySearch(elems, 0, size, id) >= 0;
+        }
+        int i = Arrays.binarySearch(keys, 0, nWords, id >>> 6);
+        return i >= 0 && (words[i] & (1L << id)) != 0;
+    }
+
+    public boolean add(int id) {
+        checkMutable();
+        if (elems != null) {
+            int i = Arrays.binarySearch(elems, 0, size, id);
+            if (i >= 0) {
+                return false;
+            }
+            if (size < SMALL_CAPACITY) {
+                i = -i - 1;
+                if (size == elems.length) {
+                    elems = Arrays.copyOf(elems, Math.max(4, size * 2));
+                }
+                System.arraycopy(elems, i, elems, i + 1, size - i);
+                elems[i] = id;
+                ++size;
+                return true;
+            }
+            toBitmap();
+        }
+        int key = id >>> 6;
+        long bit = 1L << id;
+        int i = Arrays.binarySearch(keys, 0, nWords, key);
+        if (i >= 0) {
+            if ((words[i] & bit) != 0) {
+                return false;
+            }
+            words[i] |= bit;
+        } else {
+            i = -i - 1;
+            if (nWords == keys.length) {
+                int capacity = Math.max(4, nWords * 2);
+                keys = Arrays.copyOf(keys, capacity);
+                words = Arrays.copyOf(words, capacity);
+            }
+            System.arraycopy(keys, i, keys, i + 1, nWords - i);
+            System.arraycopy(words, i, words, i + 1, nWords - i);
+            keys[i] = key;
+            words[i] = bit;
+            ++nWords;
+        }
+        ++size;
+        return true;
+    }
+
+    /**
+     * Adds all IDs of other set to this set. If other adds no ID to
+     * a bitmap, nothing but the empty result is allocated.
+     *
+     * @return the IDs that are newly added to this set.
+     */
+    public HybridIdSet addAllDiff(HybridIdSet other) {
+        checkMutable();
+        HybridIdSet diff = new HybridIdSet();
+        if (other.elems != null) {
+            for (int i = 0; i < other.size; ++i) {
+                if (add(other.elems[i])) {
+                    diff.add(other.elems[i]);
+                }
+            }
+            return diff;
+        }
+        if (elems != null) {
+            toBitmap();
+        }
+        // count the words of other that add IDs, and the ones whose
+        // indexes are new to this set, without allocating
+        int nAdding = 0, nNewKeys = 0;
+        for (int i = 0, j = 0; j < other.nWords; ++j) {
+            int key = other.keys[j];
+            while (i < nWords && keys[i] < key) {
+                ++i;
+            }
+            if (i < nWords && keys[i] == key) {
+                if ((other.words[j] & ~words[i]) != 0) {
+                    ++nAdding;
+                }
+            } else {
+                ++nAdding;
+                ++nNewKeys;
+            }
+        }
+        if (nAdding == 0) {
+            return diff;
+        }
+        // merge the sorted words of the two bitmaps, in place if
+        // other has no new word indexes
+        int[] newKeys = keys;
+        long[] newWords = words;
+        if (nNewKeys > 0) {
+            newKeys = new int[nWords + nNewKeys];
+            newWords = new long[newKeys.length];
+        }
+        int[] diffKeys = new int[nAdding];
+        long[] diffWords = new long[nAdding];
+        int n = 0, nDiff = 0, i = 0, j = 0;
+        while (i < nWords || j < other.nWords) {
+            if (j == other.nWords || (i < nWords && keys[i] < other.keys[j])) {
+                newKeys[n] = keys[i];
+                newWords[n++] = words[i++];
+            } else {
+                int key = other.keys[j];
+                long word = other.words[j++];
+                long mine = 0;
+                if (i < nWords && keys[i] == key) {
+                    mine = words[i++];
+                }
+                long added = word & ~mine;
+                if (added != 0) {
+                    diffKeys[nDiff] = key;
+                    diffWords[nDiff++] = added;
+                    diff.size += Long.bitCount(added);
+                }
+                newKeys[n] = key;
+                newWords[n++] = mine | word;
+            }
+        }
+        keys = newKeys;
+        words = newWords;
+        nWords = n;
+        size += diff.size;
+        diff.elems = null;
+        diff.keys = diffKeys;
+        diff.words = diffWords;
+        diff.nWords = nDiff;
+        diff.shrinkIfSmall();
+        return diff;
+    }
+
+    boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * Makes this set immutable.
+     *
+     * @return this set.
+     */
+    HybridIdSet freeze() {
+        frozen = true;
+        return this;
+    }
+
+    /**
+     * @return a mutable copy of this set.
+     */
+    HybridIdSet copy() {
+        HybridIdSet copy = new HybridIdSet();
+        copy.size = size;
+        if (elems != null) {
+            copy.elems = Arrays.copyOf(elems, size);
+        } else {
+            copy.elems = null;
+            copy.keys = Arrays.copyOf(keys, nWords);
+            copy.words = Arrays.copyOf(words, nWords);
+            copy.nWords = nWords;
+        }
+        return copy;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof HybridIdSet other) || size != other.size) {
+            return false;
+        }
+        PrimitiveIterator.OfInt it = iterator(), otherIt = other.iterator();
+        while (it.hasNext()) {
+            if (it.nextInt() != otherIt.nextInt()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        if (frozen && hash != 0) {
+            return hash;
+        }
+        int h = 1;
+        for (PrimitiveIterator.OfInt it = iterator(); it.hasNext(); ) {
+            h = 31 * h + it.nextInt();
+        }
+        if (frozen) {
+            hash = h;
+        }
+        return h;
+    }
+
+    public PrimitiveIterator.OfInt iterator() {
+        if (elems != null) {
+            return new PrimitiveIterator.OfInt() {
+                private int i = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return i < size;
+                }
+
+                @Override
+                public int nextInt() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return elems[i++];
+                }
+            };
+        }
+        return new PrimitiveIterator.OfInt() {
+            private int i = 0;
+
+            private long word = nWords > 0 ? words[0] : 0;
+
+            @Override
+            public boolean hasNext() {
+                while (word == 0 && i + 1 < nWords) {
+                    word = words[++i];
+                }
+                return word != 0;
+            }
+
+            @Override
+            public int nextInt() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int id = (keys[i] << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                return id;
+            }
+        };
+    }
+
+    private void checkMutable() {
+        if (frozen) {
+            throw new IllegalStateException("Modifying a frozen set");
+        }
+    }
+
+    private void toBitmap() {
+        int[] ids = elems;
+        elems = null;
+        keys = EMPTY_INTS;
+        words = EMPTY_LONGS;
+        nWords = 0;
+        int n = size;
+        size = 0;
+        for (int k = 0; k < n; ++k) {
+            add(ids[k]);
+        }
+    }
+
+    private void shrinkIfSmall() {
+        if (elems == null && size <= SMALL_CAPACITY) {
+            int[] ids = new int[size];
+            PrimitiveIterator.OfInt it = iterator();
+            for (int k = 0; k < ids.length; ++k) {
+                ids[k] = it.nextInt();
+            }
+            elems = ids;
+            keys = null;
+            words = null;
+            nWords = 0;
+        }
+    }
+}
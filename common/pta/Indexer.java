@@ -0,0 +1,45 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.pts;
+
+/**
+ * Dense numbering of the objects stored in points-to sets.
+ * <p>
+ * A numbering belongs to one solver run, and the points-to sets keep
+ * a reference to the numbering they were created with, so that the
+ * numbers live exactly as long as the sets using them.
+ *
+ * @param <E> type of the numbered objects
+ */
+public interface Indexer<E> {
+
+    /**
+     * @return the number of given object, which is assigned on first use.
+     */
+    int getIndex(E o);
+
+    /**
+     * @return the object of given number.
+     */
+    E getObject(int index);
+}
@@ -0,0 +1,54 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.pts;
+
+import pascal.taie.util.collection.Maps;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link Indexer} that numbers objects in the order they are first seen.
+ *
+ * @param <E> type of the numbered objects
+ */
+public class MapBasedIndexer<E> implements Indexer<E> {
+
+    private final Map<E, Integer> indexes = Maps.newMap();
+
+    private final List<E> objects = new ArrayList<>();
+
+    @Override
+    public int getIndex(E o) {
+        return indexes.computeIfAbsent(o, e -> {
+            objects.add(e);
+            return objects.size() - 1;
+        });
+    }
+
+    @Override
+    public E getObject(int index) {
+        return objects.get(index);
+    }
+}
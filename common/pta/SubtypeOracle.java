@@ -0,0 +1,63 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.core.solver;
+
+import pascal.taie.World;
+import pascal.taie.language.type.Type;
+import pascal.taie.language.type.TypeSystem;
+import pascal.taie.util.collection.Maps;
+
+import java.util.Map;
+
+/**
+ * Answers subtype queries, and caches the answers.
+ * <p>
+ * Type filtering asks whether the type of an object is a subtype of
+ * the declared type of a pointer, for each propagated object, while the
+ * numbers of distinct declared types and object types are small.
+ */
+public class SubtypeOracle {
+
+    private final TypeSystem typeSystem;
+
+    /**
+     * Map from a supertype to the answers for its subtype queries.
+     */
+    private final Map<Type, Map<Type, Boolean>> cache = Maps.newMap();
+
+    public SubtypeOracle() {
+        this(World.get().getTypeSystem());
+    }
+
+    public SubtypeOracle(TypeSystem typeSystem) {
+        this.typeSystem = typeSystem;
+    }
+
+    /**
+     * @return true if subtype is a subtype of supertype.
+     */
+    public boolean isSubtype(Type supertype, Type subtype) {
+        return cache.computeIfAbsent(supertype, t -> Maps.newMap())
+                .computeIfAbsent(subtype, t -> typeSystem.isSubtype(supertype, t));
+    }
+}
@@ -0,0 +1,338 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.core.solver;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pascal.taie.config.AnalysisOptions;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.util.collection.Maps;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Collects statistics of a pointer analysis run, for finding out the
+ * methods, contexts and pointers that are responsible for its cost.
+ * <p>
+ * It counts the propagations and the sizes of propagated deltas per
+ * pointer and per method, and samples the size of the work list and
+ * the number of reachable methods as a timeline. At the end of solving,
+ * the solver feeds it the contexts per method and the call graph edges
+ * per call site, and it writes all of them, together with the largest
+ * points-to sets, to a JSON report. A progress line is logged
+ * periodically during solving.
+ * <p>
+ * The solver creates a telemetry only if option "telemetry" is set,
+ * and guards each call to it by a null check, so that the disabled
+ * telemetry costs one branch per propagation. One telemetry covers one
+ * analysis: a solver that runs in several stages shares its telemetry
+ * with them and writes the report once. The totals, the methods and the
+ * timeline cover all stages, while the per-pointer statistics cover the
+ * stage whose result is kept, see {@link #startStage()}.
+ */
+public class Telemetry {
+
+    private static final Logger logger = LogManager.getLogger(Telemetry.class);
+
+    private static final String DEFAULT_REPORT_FILE = "output/pta-telemetry.json";
+
+    /**
+     * The clock is read once per this number of steps.
+     */
+    private static final int CLOCK_INTERVAL = 256;
+
+    private static final long SAMPLE_INTERVAL_MS = 100;
+
+    private static final long LOG_INTERVAL_MS = 5000;
+
+    /**
+     * Number of entries in each ranking of the report.
+     */
+    private static final int TOP_K = 20;
+
+    private final File reportFile;
+
+    private final long startTime = System.currentTimeMillis();
+
+    private long lastSampleTime = startTime;
+
+    private long lastLogTime = startTime;
+
+    private long nSteps;
+
+    private long nPropagations;
+
+    private long nPropagatedObjects;
+
+    /**
+     * Map from a pointer to its number of propagations and the total
+     * size of its deltas.
+     */
+    private Map<Object, long[]> pointerCounts = Maps.newMap();
+
+    /**
+     * {@link #pointerCounts} of the last committed stage.
+     */
+    private Map<Object, long[]> committedPointerCounts = pointerCounts;
+
+    /**
+     * Map from a method to the number of propagations and the total size
+     * of deltas of the pointers in it.
+     */
+    private final Map<JMethod, long[]> methodCounts = Maps.newMap();
+
+    private final List<long[]> timeline = new ArrayList<>();
+
+    private final Map<JMethod, Integer> contextCounts = Maps.newMap();
+
+    private final Map<Object, Integer> callSiteEdges = Maps.newMap();
+
+    private Telemetry(File reportFile) {
+        this.reportFile = reportFile;
+    }
+
+    /**
+     * @return the telemetry configured by options, or null if option
+     * "telemetry" is not set. The report is written to the file given
+     * by option "telemetry-file".
+     */
+    public static Telemetry of(AnalysisOptions options) {
+        if (!options.has("telemetry") || !options.getBoolean("telemetry")) {
+            return null;
+        }
+        String file = options.has("telemetry-file") ?
+                options.getString("telemetry-file") : DEFAULT_REPORT_FILE;
+        return new Telemetry(new File(file));
+    }
+
+    /**
+     * Starts recording the pointers of a new stage, which end up in the
+     * report if the stage is committed by {@link #commitStage()}.
+     */
+    public void startStage() {
+        pointerCounts = Maps.newMap();
+    }
+
+    /**
+     * Keeps the pointers of current stage, whose result is kept by the solver.
+     */
+    public void commitStage() {
+        committedPointerCounts = pointerCounts;
+    }
+
+    /**
+     * Drops the pointers of current stage, whose result is abandoned,
+     * so that they can be reclaimed together with the stage.
+     */
+    public void abandonStage() {
+        pointerCounts = committedPointerCounts;
+    }
+
+    /**
+     * Records a propagation to given pointer.
+     *
+     * @param method    the method containing the pointer, or null if
+     *                  the pointer does not belong to a method
+     * @param deltaSize the number of objects newly propagated to the pointer
+     */
+    public void onPropagate(Object pointer, JMethod method, int deltaSize) {
+        ++nPropagations;
+        nPropagatedObjects += deltaSize;
+        add(pointerCounts.computeIfAbsent(pointer, p -> new long[2]), deltaSize);
+        if (method != null) {
+            add(methodCounts.computeIfAbsent(method, m -> new long[2]), deltaSize);
+        }
+    }
+
+    private static void add(long[] counts, int deltaSize) {
+        ++counts[0];
+        counts[1] += deltaSize;
+    }
+
+    /**
+     * Called once per solving step. Samples the timeline and logs the
+     * progress when their intervals have passed.
+     */
+    public void onStep(IntSupplier workListSize, LongSupplier nReachableMethods) {
+        if (++nSteps % CLOCK_INTERVAL != 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (now - lastSampleTime >= SAMPLE_INTERVAL_MS) {
+            lastSampleTime = now;
+            timeline.add(new long[]{now - startTime, workListSize.getAsInt(),
+                    nReachableMethods.getAsLong(), nPropagations});
+        }
+        if (now - lastLogTime >= LOG_INTERVAL_MS) {
+            lastLogTime = now;
+            logger.info("PTA progress: {}s, {} propagations, {} objects propagated, " +
+                            "work list {}, {} reachable methods",
+                    (now - startTime) / 1000, nPropagations, nPropagatedObjects,
+                    workListSize.getAsInt(), nReachableMethods.getAsLong());
+        }
+    }
+
+    /**
+     * Records a reachable (context-sensitive) method.
+     */
+    public void onReachableMethod(JMethod method) {
+        contextCounts.merge(method, 1, Integer::sum);
+    }
+
+    /**
+     * Records a call graph edge from given call site.
+     */
+    public void onCallEdge(Object callSite) {
+        callSiteEdges.merge(callSite, 1, Integer::sum);
+    }
+
+    /**
+     * Writes the report to the report file.
+     *
+     * @param sizeOf returns the size of the final points-to set of
+     *               a pointer given to {@link #onPropagate}
+     */
+    public void writeReport(ToIntFunction<Object> sizeOf) {
+        File dir = reportFile.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) {
+            logger.warn("Failed to create directory {}", dir);
+        }
+        try (PrintStream out = new PrintStream(reportFile)) {
+            out.println("{");
+            out.printf("  \"timeMs\": %d,%n", System.currentTimeMillis() - startTime);
+            out.printf("  \"propagations\": %d,%n", nPropagations);
+            out.printf("  \"propagatedObjects\": %d,%n", nPropagatedObjects);
+            out.printf("  \"pointers\": %d,%n", pointerCounts.size());
+            out.printf("  \"reachableMethods\": %d,%n", contextCounts.size());
+            out.printf("  \"csMethods\": %d,%n", contextCounts.values()
+                    .stream().mapToLong(Integer::longValue).sum());
+            out.printf("  \"callGraphEdges\": %d,%n", callSiteEdges.values()
+                    .stream().mapToLong(Integer::longValue).sum());
+            writeRanking(out, "hotPointers", "propagations", "deltaObjects",
+                    pointerCounts);
+            out.println(",");
+            writeRanking(out, "hotMethods", "propagations", "deltaObjects",
+                    methodCounts);
+            out.println(",");
+            writeRanking(out, "contextsPerMethod", "contexts", contextCounts);
+            out.println(",");
+            List<Ranked> sizes = new ArrayList<>();
+            pointerCounts.keySet().forEach(p ->
+                    sizes.add(new Ranked(p, sizeOf.applyAsInt(p))));
+            writeList(out, "largestPointsToSets", top(sizes), "size");
+            out.println(",");
+            writeRanking(out, "callSiteEdges", "edges", callSiteEdges);
+            out.println(",");
+            out.println("  \"timeline\": [");
+            for (int i = 0; i < timeline.size(); ++i) {
+                long[] s = timeline.get(i);
+                out.printf("    {\"timeMs\": %d, \"workList\": %d, " +
+                                "\"reachableMethods\": %d, \"propagations\": %d}%s%n",
+                        s[0], s[1], s[2], s[3], i + 1 < timeline.size() ? "," : "");
+            }
+            out.println("  ]");
+            out.println("}");
+        } catch (FileNotFoundException e) {
+            logger.warn("Failed to write telemetry report to {}", reportFile, e);
+            return;
+        }
+        logger.info("Telemetry report written to {}", reportFile);
+    }
+
+    private static <K> void writeRanking(PrintStream out, String name,
+                                         String valueName, Map<K, Integer> counts) {
+        List<Ranked> ranking = new ArrayList<>();
+        counts.forEach((k, v) -> ranking.add(new Ranked(k, v)));
+        writeList(out, name, top(ranking), valueName);
+    }
+
+    private static <K> void writeRanking(PrintStream out, String name,
+                                         String valueName, String totalName,
+                                         Map<K, long[]> counts) {
+        List<Ranked> ranking = new ArrayList<>();
+        counts.forEach((k, v) -> ranking.add(new Ranked(k, v[0], v[1])));
+        out.printf("  \"%s\": [%n", name);
+        List<Ranked> top = top(ranking);
+        for (int i = 0; i < top.size(); ++i) {
+            Ranked r = top.get(i);
+            out.printf("    {\"name\": %s, \"%s\": %d, \"%s\": %d}%s%n",
+                    quote(r.key()), valueName, r.value(), totalName, r.total(),
+                    i + 1 < top.size() ? "," : "");
+        }
+        out.print("  ]");
+    }
+
+    private static void writeList(PrintStream out, String name,
+                                  List<Ranked> list, String valueName) {
+        out.printf("  \"%s\": [%n", name);
+        for (int i = 0; i < list.size(); ++i) {
+            Ranked r = list.get(i);
+            out.printf("    {\"name\": %s, \"%s\": %d}%s%n",
+                    quote(r.key()), valueName, r.value(),
+                    i + 1 < list.size() ? "," : "");
+        }
+        out.print("  ]");
+    }
+
+    private static List<Ranked> top(List<Ranked> ranking) {
+        ranking.sort(Comparator.comparingLong(Ranked::value).reversed());
+        return ranking.subList(0, Math.min(TOP_K, ranking.size()));
+    }
+
+    private static String quote(Object o) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : String.valueOf(o).toCharArray()) {
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private record Ranked(Object key, long value, long total) {
+
+        private Ranked(Object key, long value) {
+            this(key, value, 0);
+        }
+    }
+}